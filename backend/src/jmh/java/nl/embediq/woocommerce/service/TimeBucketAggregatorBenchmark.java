@@ -0,0 +1,125 @@
+package nl.embediq.woocommerce.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The month and week series of the dashboard, computed by
+ * {@link TimeBucketAggregator} and by the per-period filtering it replaced
+ * (one pass over all rows and a BigDecimal reduction for every period).
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimeBucketAggregatorBenchmark {
+
+    private static final int YEAR = 2025;
+
+    private static final String[] MONTH_NAMES = {"Jan", "Feb", "Mrt", "Apr", "Mei", "Jun",
+            "Jul", "Aug", "Sep", "Okt", "Nov", "Dec"};
+
+    /**
+     * An expense or order: its date and amount
+     */
+    private record Row(LocalDateTime date, BigDecimal amount) {
+    }
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<Row> data;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate firstDay = LocalDate.of(YEAR, 1, 1);
+        data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            data.add(new Row(
+                    firstDay.plusDays(random.nextInt(365)).atTime(random.nextInt(24), random.nextInt(60)),
+                    BigDecimal.valueOf(random.nextInt(50_000), 2)));
+        }
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> monthsSinglePass() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.monthsOfYear(YEAR, MONTH_NAMES);
+        for (Row row : data) {
+            buckets.add(row.date().toLocalDate(), row.amount());
+        }
+        return buckets.getAmounts();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> monthsPerPeriod() {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int month = 1; month <= 12; month++) {
+            LocalDate monthDate = LocalDate.of(YEAR, month, 1);
+            LocalDateTime monthStart = monthDate.atStartOfDay();
+            LocalDateTime monthEnd = monthDate.withDayOfMonth(monthDate.lengthOfMonth()).atTime(23, 59, 59);
+            result.put(MONTH_NAMES[month - 1], sum(monthStart, monthEnd));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> weeksSinglePass() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.weeksOfYear(YEAR);
+        for (Row row : data) {
+            buckets.add(row.date().toLocalDate(), row.amount());
+        }
+        return buckets.getAmounts();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> weeksPerPeriod() {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        LocalDate firstDayOfYear = LocalDate.of(YEAR, 1, 1);
+        LocalDate lastDayOfYear = LocalDate.of(YEAR, 12, 31);
+        int weeksInYear = (int) ChronoUnit.WEEKS.between(firstDayOfYear, lastDayOfYear) + 1;
+
+        for (int weekNum = 1; weekNum <= Math.min(weeksInYear, 53); weekNum++) {
+            LocalDate weekStart = firstDayOfYear.plusWeeks(weekNum - 1);
+            LocalDate weekEnd = weekStart.plusDays(6);
+            if (weekEnd.getYear() > YEAR) {
+                weekEnd = lastDayOfYear;
+            }
+            result.put("Week " + weekNum, sum(weekStart.atStartOfDay(), weekEnd.atTime(23, 59, 59)));
+        }
+        return result;
+    }
+
+    private BigDecimal sum(LocalDateTime from, LocalDateTime to) {
+        return data.stream()
+                .filter(row -> !row.date().isBefore(from) && !row.date().isAfter(to))
+                .map(Row::amount)
+                .filter(Objects::nonNull)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
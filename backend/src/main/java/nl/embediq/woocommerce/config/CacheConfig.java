@@ -0,0 +1,47 @@
+package nl.embediq.woocommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches for the dashboard and statistics endpoints. Entries are evicted by
+ * the change events in DashboardService; the expiry only bounds how stale
+ * data can get from changes that publish no event, such as a single
+ * customer arriving by webhook, or the clock passing midnight.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TOP_CUSTOMERS = "topCustomers";
+    public static final String DASHBOARD_COUNTS = "dashboardCounts";
+    public static final String ORDER_STATS = "orderStats";
+    public static final String REVENUE_STATS = "revenueStats";
+    public static final String EXPENSE_STATS = "expenseStats";
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Hit and miss counts are shown by GET /api/admin/sync/caches
+        cacheManager.registerCustomCache(TOP_CUSTOMERS, cache(Duration.ofMinutes(1)));
+        cacheManager.registerCustomCache(DASHBOARD_COUNTS, cache(Duration.ofSeconds(30)));
+        cacheManager.registerCustomCache(ORDER_STATS, cache(Duration.ofMinutes(1)));
+        cacheManager.registerCustomCache(REVENUE_STATS, cache(Duration.ofMinutes(5)));
+        cacheManager.registerCustomCache(EXPENSE_STATS, cache(Duration.ofMinutes(5)));
+        return cacheManager;
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> cache(Duration expiry) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(expiry)
+                .maximumSize(100)
+                .recordStats()
+                .build();
+    }
+}
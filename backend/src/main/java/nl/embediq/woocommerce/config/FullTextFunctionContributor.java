@@ -0,0 +1,24 @@
+package nl.embediq.woocommerce.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Makes the customers full-text index usable from JPA criteria:
+ * {@code customer_fulltext(firstName, lastName, email, companyName, query)}
+ * is true when the customer matches a boolean-mode query. Registered through
+ * META-INF/services.
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+
+    public static final String CUSTOMER_FULLTEXT = "customer_fulltext";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(CUSTOMER_FULLTEXT,
+                "match(?1, ?2, ?3, ?4) against (?5 in boolean mode)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
@@ -0,0 +1,105 @@
+package nl.embediq.woocommerce.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the SQL statements Hibernate prepares and the entities it loads
+ * while a web request is handled, and records them per endpoint as
+ * hibernate.request.statements and hibernate.request.entities. Queries run
+ * through JdbcTemplate are not seen by Hibernate and not counted.
+ *
+ * <p>Work outside web requests (syncs, workers) is not counted here; the
+ * totals of Hibernate's own statistics include it.</p>
+ */
+@Component
+public class HibernateRequestMetrics
+        implements StatementInspector, PostLoadEventListener, Integrator, AsyncHandlerInterceptor {
+
+    private static final ThreadLocal<long[]> COUNTS = new ThreadLocal<>();
+
+    @Autowired
+    private transient MeterRegistry meterRegistry;
+
+    @Override
+    public String inspect(String sql) {
+        long[] counts = COUNTS.get();
+        if (counts != null) {
+            counts[0]++;
+        }
+        return sql;
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        long[] counts = COUNTS.get();
+        if (counts != null) {
+            counts[1]++;
+        }
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        sessionFactory.getServiceRegistry()
+                .requireService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory,
+                             SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        COUNTS.set(new long[2]);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // Continues on another thread, which is counted as its own dispatch
+        COUNTS.remove();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        long[] counts = COUNTS.get();
+        COUNTS.remove();
+        if (counts == null) {
+            return;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("hibernate.request.statements")
+                .description("SQL statements prepared by Hibernate per request")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(counts[0]);
+        DistributionSummary.builder("hibernate.request.entities")
+                .description("Entities loaded by Hibernate per request")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(counts[1]);
+    }
+}
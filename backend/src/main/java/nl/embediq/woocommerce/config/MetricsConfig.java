@@ -0,0 +1,74 @@
+package nl.embediq.woocommerce.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Metrics for /actuator/prometheus. Spring Boot already times every request
+ * (http.server.requests); this adds histogram buckets to the latencies that
+ * matter, turns on Hibernate's statistics and counts queries per request.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    /**
+     * Timers and summaries published with histogram buckets, so percentiles
+     * can be computed over any period and across instances
+     */
+    private static final Set<String> HISTOGRAMS = Set.of(
+            "http.server.requests",
+            "hibernate.request.statements",
+            "woocommerce.requests",
+            "woocommerce.response.size",
+            "invoice.render");
+
+    @Autowired
+    private HibernateRequestMetrics hibernateRequestMetrics;
+
+    @Bean
+    public static MeterFilter histogramMeterFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HISTOGRAMS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    /**
+     * Hibernate statistics feed the hibernate.* metrics Spring Boot binds
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateMetricsCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, hibernateRequestMetrics);
+            properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                    (IntegratorProvider) () -> List.of(hibernateRequestMetrics));
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(hibernateRequestMetrics);
+    }
+}
@@ -5,49 +5,166 @@ import nl.embediq.woocommerce.exception.WooCommerceRateLimitException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.support.BasicAuthenticationInterceptor;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
 
 @Configuration
 public class WooCommerceConfig {
-    
+
     @Value("${woocommerce.url}")
     private String baseUrl;
-    
+
     @Value("${woocommerce.consumer-key}")
     private String consumerKey;
-    
+
     @Value("${woocommerce.consumer-secret}")
     private String consumerSecret;
-    
+
+    @Value("${woocommerce.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${woocommerce.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    /**
+     * RestTemplate on a shared JDK HttpClient: connections are pooled and kept
+     * alive between requests, HTTP/2 is used when the store supports it, and
+     * responses are requested gzip-compressed. The Basic auth header is
+     * encoded once here instead of on every request.
+     */
     @Bean
     public RestTemplate wooCommerceRestTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new BasicAuthenticationInterceptor(consumerKey, consumerSecret));
+        restTemplate.getInterceptors().add(new GzipInterceptor());
         restTemplate.setErrorHandler(new WooCommerceErrorHandler());
         return restTemplate;
     }
-    
+
+    /**
+     * Asks for gzip and unpacks compressed responses before they are parsed
+     */
+    public static class GzipInterceptor implements ClientHttpRequestInterceptor {
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                            ClientHttpRequestExecution execution) throws IOException {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            ClientHttpResponse response = execution.execute(request, body);
+
+            String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding != null && encoding.toLowerCase().contains("gzip")) {
+                return new GzipResponse(response);
+            }
+            return response;
+        }
+    }
+
+    private static class GzipResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        GzipResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(delegate.getHeaders());
+            this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+            this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new GZIPInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
     public static class WooCommerceErrorHandler implements ResponseErrorHandler {
-        
+
         @Override
         public boolean hasError(ClientHttpResponse response) throws IOException {
-            return response.getStatusCode().is4xxClientError() 
+            return response.getStatusCode().is4xxClientError()
                 || response.getStatusCode().is5xxServerError();
         }
-        
+
         @Override
         public void handleError(ClientHttpResponse response) throws IOException {
             if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                throw new WooCommerceRateLimitException("Rate limit exceeded");
+                throw new WooCommerceRateLimitException("Rate limit exceeded",
+                        parseRetryAfter(response.getHeaders()));
             }
             throw new WooCommerceApiException(
                 "WooCommerce API error: " + response.getStatusCode(),
-                null
+                response.getStatusCode().value()
             );
         }
+
+        /**
+         * Retry-After is either a number of seconds or an HTTP date
+         */
+        private static Duration parseRetryAfter(HttpHeaders headers) {
+            String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            try {
+                return Duration.ofSeconds(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    long retryAt = headers.getFirstDate(HttpHeaders.RETRY_AFTER);
+                    return Duration.ofMillis(Math.max(0, retryAt - System.currentTimeMillis()));
+                } catch (IllegalArgumentException ignored) {
+                    return null;
+                }
+            }
+        }
     }
 }
@@ -1,5 +1,7 @@
 package nl.embediq.woocommerce.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.*;
 import nl.embediq.woocommerce.entity.Customer;
@@ -7,25 +9,53 @@ import nl.embediq.woocommerce.entity.Order;
 import nl.embediq.woocommerce.entity.SyncStatus;
 import nl.embediq.woocommerce.enums.SyncStatusEnum;
 import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkState;
+import nl.embediq.woocommerce.event.ExpenseChangedEvent;
 import nl.embediq.woocommerce.repository.CustomerRepository;
 import nl.embediq.woocommerce.repository.OrderRepository;
+import nl.embediq.woocommerce.repository.OrderSpecifications;
 import nl.embediq.woocommerce.repository.ProductRepository;
+import nl.embediq.woocommerce.repository.ProductSpecifications;
 import nl.embediq.woocommerce.repository.SyncStatusRepository;
-import nl.embediq.woocommerce.service.CustomerSyncService;
-import nl.embediq.woocommerce.service.OrderSyncService;
-import nl.embediq.woocommerce.service.ProductSyncService;
+import nl.embediq.woocommerce.repository.SyncWorkItemRepository;
+import nl.embediq.woocommerce.service.DataExportService;
+import nl.embediq.woocommerce.service.InvoiceExportService;
+import nl.embediq.woocommerce.service.InvoiceStore;
+import nl.embediq.woocommerce.service.OrderService;
+import nl.embediq.woocommerce.service.RevenueRollupService;
+import nl.embediq.woocommerce.service.SearchService;
+import nl.embediq.woocommerce.service.SyncJobRegistry;
+import nl.embediq.woocommerce.service.SyncOrchestrator;
+import nl.embediq.woocommerce.service.SyncWorkQueue;
+import nl.embediq.woocommerce.service.TableWriter;
 import nl.embediq.woocommerce.service.WooCommerceSyncScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -53,13 +83,10 @@ public class SyncMonitorController {
     private nl.embediq.woocommerce.repository.ExpenseRepository expenseRepository;
 
     @Autowired
-    private OrderSyncService orderSyncService;
+    private SyncOrchestrator syncOrchestrator;
 
     @Autowired
-    private CustomerSyncService customerSyncService;
-
-    @Autowired
-    private ProductSyncService productSyncService;
+    private SyncJobRegistry syncJobRegistry;
 
     @Autowired
     private nl.embediq.woocommerce.service.SkuGeneratorService skuGeneratorService;
@@ -76,6 +103,39 @@ public class SyncMonitorController {
     @Autowired
     private nl.embediq.woocommerce.service.ColorVariationService colorVariationService;
 
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SyncWorkItemRepository syncWorkItemRepository;
+
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    @Autowired
+    private InvoiceStore invoiceStore;
+
+    @Autowired
+    private InvoiceExportService invoiceExportService;
+
+    @Autowired
+    private DataExportService dataExportService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // ==================== DASHBOARD ====================
 
     @GetMapping("/dashboard")
@@ -98,29 +158,19 @@ public class SyncMonitorController {
                 .findFirst()
                 .orElse(null);
 
-        long totalOrders = orderRepository.count();
-        long totalCustomers = customerRepository.count();
-        long totalProducts = productRepository.count();
-
-        // Count items created in last 24 hours
-        LocalDateTime last24Hours = LocalDateTime.now().minusDays(1);
-
-        long ordersSyncedToday = orderRepository.countSyncedSince(last24Hours);
-        long customersSyncedToday = customerRepository.countSyncedSince(last24Hours);
-        long productsSyncedToday = productRepository.countSyncedSince(last24Hours);
-
-        log.info("Counting since: {}, Orders last 24h: {}", last24Hours, ordersSyncedToday);
+        // Cached; the sync statuses above are read every time to show progress
+        DashboardCounts counts = dashboardService.getDashboardCounts();
 
         SyncDashboard dashboard = new SyncDashboard();
         dashboard.setOrderSync(orderSync);
         dashboard.setCustomerSync(customerSync);
         dashboard.setProductSync(productSync);
-        dashboard.setTotalOrders(totalOrders);
-        dashboard.setTotalCustomers(totalCustomers);
-        dashboard.setTotalProducts(totalProducts);
-        dashboard.setOrdersSyncedToday(ordersSyncedToday);
-        dashboard.setCustomersSyncedToday(customersSyncedToday);
-        dashboard.setProductsSyncedToday(productsSyncedToday);
+        dashboard.setTotalOrders(counts.totalOrders());
+        dashboard.setTotalCustomers(counts.totalCustomers());
+        dashboard.setTotalProducts(counts.totalProducts());
+        dashboard.setOrdersSyncedToday(counts.ordersSyncedToday());
+        dashboard.setCustomersSyncedToday(counts.customersSyncedToday());
+        dashboard.setProductsSyncedToday(counts.productsSyncedToday());
         dashboard.setLastUpdate(LocalDateTime.now());
 
         return ResponseEntity.ok(dashboard);
@@ -164,46 +214,20 @@ public class SyncMonitorController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "25") int size
     ) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by("createdAt").descending().and(Sort.by("id").descending()));
 
-        List<nl.embediq.woocommerce.entity.Product> allProducts = productRepository.findAll();
+        BigDecimal min = minPrice != null && !minPrice.isEmpty() ? new BigDecimal(minPrice) : null;
+        BigDecimal max = maxPrice != null && !maxPrice.isEmpty() ? new BigDecimal(maxPrice) : null;
 
-        // Apply filters
-        if (search != null && !search.isEmpty()) {
-            String searchLower = search.toLowerCase();
-            allProducts = allProducts.stream()
-                    .filter(p ->
-                            p.getName().toLowerCase().contains(searchLower) ||
-                                    (p.getSku() != null && p.getSku().toLowerCase().contains(searchLower))
-                    )
-                    .collect(Collectors.toList());
-        }
+        // Filter, sort and paginate in the database (variations stay unloaded)
+        Specification<nl.embediq.woocommerce.entity.Product> spec =
+                Specification.where(ProductSpecifications.matchesSearch(search))
+                        .and(ProductSpecifications.hasStatus(status))
+                        .and(ProductSpecifications.priceAtLeast(min))
+                        .and(ProductSpecifications.priceAtMost(max));
 
-        if (status != null && !status.isEmpty()) {
-            allProducts = allProducts.stream()
-                    .filter(p -> p.getStatus() != null && p.getStatus().equalsIgnoreCase(status))
-                    .collect(Collectors.toList());
-        }
-
-        if (minPrice != null && !minPrice.isEmpty()) {
-            BigDecimal min = new BigDecimal(minPrice);
-            allProducts = allProducts.stream()
-                    .filter(p -> p.getPrice() != null && p.getPrice().compareTo(min) >= 0)
-                    .collect(Collectors.toList());
-        }
-
-        if (maxPrice != null && !maxPrice.isEmpty()) {
-            BigDecimal max = new BigDecimal(maxPrice);
-            allProducts = allProducts.stream()
-                    .filter(p -> p.getPrice() != null && p.getPrice().compareTo(max) <= 0)
-                    .collect(Collectors.toList());
-        }
-
-        // Convert to DTOs with pagination
-        List<ProductDTO> productDTOs = allProducts.stream()
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .skip((long) page * size)
-                .limit(size)
+        Page<ProductDTO> productPage = productRepository.findAll(spec, pageable)
                 .map(p -> {
                     ProductDTO dto = new ProductDTO();
                     dto.setId(p.getId());
@@ -220,11 +244,7 @@ public class SyncMonitorController {
                     dto.setCreatedAt(p.getCreatedAt());
                     dto.setLastSyncedAt(p.getLastSyncedAt());
                     return dto;
-                })
-                .collect(Collectors.toList());
-
-        long total = allProducts.size();
-        Page<ProductDTO> productPage = new PageImpl<>(productDTOs, pageable, total);
+                });
 
         return ResponseEntity.ok(productPage);
     }
@@ -287,52 +307,30 @@ public class SyncMonitorController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "25") int size
     ) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-
-        List<Order> allOrders = orderRepository.findAll();
-
-        // Apply filters
-        if (search != null && !search.isEmpty()) {
-            String searchLower = search.toLowerCase();
-            allOrders = allOrders.stream()
-                    .filter(o ->
-                            o.getOrderNumber().toLowerCase().contains(searchLower) ||
-                                    (o.getCustomer() != null &&
-                                            (o.getCustomer().getFirstName().toLowerCase().contains(searchLower) ||
-                                                    o.getCustomer().getLastName().toLowerCase().contains(searchLower) ||
-                                                    o.getCustomer().getEmail().toLowerCase().contains(searchLower)))
-                    )
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by("createdAt").descending().and(Sort.by("id").descending()));
+
+        // Filter, sort and paginate in the database; customers are matched through the full-text index
+        String fullTextQuery = search != null ? SearchService.toBooleanQuery(search) : null;
+        Specification<Order> spec = Specification.where(OrderSpecifications.matchesSearch(search, fullTextQuery))
+                .and(OrderSpecifications.hasStatus(status))
+                .and(OrderSpecifications.createdAfter(dateFrom))
+                .and(OrderSpecifications.createdBefore(dateTo));
+
+        Page<Order> orders = orderRepository.findAll(spec, pageable);
+
+        // Fetch customer and items for this page only
+        Map<Long, Order> detailedOrders = new HashMap<>();
+        if (orders.hasContent()) {
+            List<Long> ids = orders.getContent().stream()
+                    .map(Order::getId)
                     .collect(Collectors.toList());
+            orderRepository.findWithDetailsByIdIn(ids)
+                    .forEach(o -> detailedOrders.put(o.getId(), o));
         }
 
-        if (status != null && !status.isEmpty()) {
-            allOrders = allOrders.stream()
-                    .filter(o -> o.getStatus().toString().equalsIgnoreCase(status))
-                    .collect(Collectors.toList());
-        }
-
-        if (dateFrom != null) {
-            allOrders = allOrders.stream()
-                    .filter(o -> o.getCreatedAt().isAfter(dateFrom))
-                    .collect(Collectors.toList());
-        }
-
-        if (dateTo != null) {
-            allOrders = allOrders.stream()
-                    .filter(o -> o.getCreatedAt().isBefore(dateTo))
-                    .collect(Collectors.toList());
-        }
-
-        // Convert to DTOs with pagination
-        List<OrderDTO> orderDTOs = allOrders.stream()
-                .sorted((o1, o2) -> o2.getCreatedAt().compareTo(o1.getCreatedAt()))
-                .skip((long) page * size)
-                .limit(size)
-                .map(this::convertToOrderDTO)
-                .collect(Collectors.toList());
-
-        long total = allOrders.size();
-        Page<OrderDTO> orderPage = new PageImpl<>(orderDTOs, pageable, total);
+        Page<OrderDTO> orderPage = orders.map(o ->
+                convertToOrderDTO(detailedOrders.getOrDefault(o.getId(), o)));
 
         return ResponseEntity.ok(orderPage);
     }
@@ -374,20 +372,33 @@ public class SyncMonitorController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Serves the stored invoice, rendered only when the order changed since;
+     * answers 304 when the client already has the current version
+     */
     @GetMapping("/orders/{id}/pdf")
-    public ResponseEntity<byte[]> downloadOrderPdf(@PathVariable Long id) {
+    public ResponseEntity<Resource> downloadOrderPdf(@PathVariable Long id, WebRequest webRequest) {
         try {
             Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-            byte[] pdfBytes = pdfGeneratorService.generateOrderPdf(order);
+            String etag = invoiceStore.etag(order);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
 
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            headers.setContentType(org.springframework.http.MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "order-" + order.getOrderNumber() + ".pdf");
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+            Path invoice = invoiceStore.get(order);
 
-            return new ResponseEntity<>(pdfBytes, headers, org.springframework.http.HttpStatus.OK);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(Files.size(invoice))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("order-" + order.getOrderNumber() + ".pdf")
+                            .build()
+                            .toString())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(new FileSystemResource(invoice));
 
         } catch (Exception e) {
             log.error("Failed to generate PDF for order {}", id, e);
@@ -395,6 +406,70 @@ public class SyncMonitorController {
         }
     }
 
+    /**
+     * Streams all orders matching the filters, one row per order item
+     */
+    @GetMapping("/orders/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo
+    ) {
+        return tableExport("orders", format,
+                writer -> dataExportService.writeOrders(writer, status, dateFrom, dateTo));
+    }
+
+    /**
+     * Exports the invoices of the given orders, or of all orders in a date
+     * range, as a ZIP or as one merged PDF
+     */
+    @PostMapping("/orders/invoices/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@RequestBody InvoiceExportRequest request) {
+        List<Long> orderIds;
+        try {
+            orderIds = invoiceExportService.orderIds(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(json(Map.of(
+                        "success", false,
+                        "error", e.getMessage()
+                    )));
+        }
+        if (orderIds.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(json(Map.of(
+                        "success", false,
+                        "error", "Geen orders gevonden"
+                    )));
+        }
+
+        boolean merged = "pdf".equalsIgnoreCase(request.getFormat());
+        String fileName = "facturen"
+                + (request.getFrom() != null && request.getTo() != null
+                        ? "-" + request.getFrom() + "-" + request.getTo() : "")
+                + (merged ? ".pdf" : ".zip");
+        log.info("Exporting {} invoices as {}", orderIds.size(), fileName);
+
+        StreamingResponseBody body = out -> {
+            if (merged) {
+                invoiceExportService.writeMergedPdf(orderIds, out);
+            } else {
+                invoiceExportService.writeZip(orderIds, out);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(merged ? MediaType.APPLICATION_PDF : MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     // ==================== CUSTOMERS ENDPOINTS ====================
 
     @GetMapping("/customers")
@@ -445,6 +520,16 @@ public class SyncMonitorController {
         return ResponseEntity.ok(customerPage);
     }
 
+    @GetMapping("/customers/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo
+    ) {
+        return tableExport("klanten", format,
+                writer -> dataExportService.writeCustomers(writer, dateFrom, dateTo));
+    }
+
     @GetMapping("/customers/{id}")
     public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable Long id) {
         return customerRepository.findById(id)
@@ -630,71 +715,40 @@ public class SyncMonitorController {
 
     @GetMapping("/stats")
     public ResponseEntity<SyncStats> getStats() {
-        SyncStats stats = new SyncStats();
+        return ResponseEntity.ok(dashboardService.getOrderStats());
+    }
 
-        // Orders per status
-        Map<String, Long> ordersByStatus = orderRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        o -> o.getStatus().toString(),
-                        Collectors.counting()
+    /**
+     * Size, hits and misses of the dashboard and statistics caches
+     */
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> caches = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                CacheStats stats = cache.getNativeCache().stats();
+                caches.put(name, Map.of(
+                        "size", cache.getNativeCache().estimatedSize(),
+                        "hits", stats.hitCount(),
+                        "misses", stats.missCount(),
+                        "hitRate", stats.hitRate(),
+                        "evictions", stats.evictionCount()
                 ));
-        stats.setOrdersByStatus(ordersByStatus);
-
-        // Orders per dag (laatste 7 dagen)
-        Map<String, Long> ordersPerDay = new LinkedHashMap<>();
-        for (int i = 6; i >= 0; i--) {
-            LocalDate date = LocalDate.now().minusDays(i);
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-            long count = orderRepository.findAll().stream()
-                    .filter(o -> o.getCreatedAt() != null)
-                    .filter(o -> o.getCreatedAt().isAfter(startOfDay) &&
-                            o.getCreatedAt().isBefore(endOfDay))
-                    .count();
-
-            ordersPerDay.put(date.toString(), count);
+            }
         }
-        stats.setOrdersPerDay(ordersPerDay);
-
-        // Top 5 klanten
-        List<CustomerStats> topCustomers = customerRepository.findAll().stream()
-                .filter(c -> c.getOrders() != null && !c.getOrders().isEmpty())
-                .map(c -> {
-                    CustomerStats cs = new CustomerStats();
-                    cs.setName(c.getFirstName() + " " + c.getLastName());
-                    cs.setEmail(c.getEmail());
-                    cs.setOrderCount(c.getOrders().size());
-                    cs.setTotalSpent(c.getOrders().stream()
-                            .map(Order::getTotal)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add));
-                    return cs;
-                })
-                .sorted((c1, c2) -> c2.getOrderCount().compareTo(c1.getOrderCount()))
-                .limit(5)
-                .collect(Collectors.toList());
-
-        stats.setTopCustomers(topCustomers);
-
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(caches);
     }
 
     // ==================== SYNC CONTROL ====================
 
     @PostMapping("/trigger")
     public ResponseEntity<Map<String, String>> triggerSync() {
-        new Thread(() -> {
-            try {
-                log.info("Starting manual sync...");
-                productSyncService.syncProducts();
-                customerSyncService.syncCustomers();
-                orderSyncService.syncOrders();
-
-                log.info("Manual sync completed");
-            } catch (Exception e) {
-                log.error("Error during manual sync", e);
-            }
-        }).start();
+        if (!syncOrchestrator.startFullSync()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "message", "Sync is al bezig",
+                    "timestamp", LocalDateTime.now().toString()
+            ));
+        }
 
         return ResponseEntity.ok(Map.of(
                 "message", "Sync gestart op de achtergrond",
@@ -702,11 +756,22 @@ public class SyncMonitorController {
         ));
     }
 
+    /**
+     * Stops a running sync after its current page, or keeps a sync that is not
+     * running from being started by the schedule until it is resumed
+     */
     @PostMapping("/stop/{syncType}")
     public ResponseEntity<Map<String, String>> stopSync(@PathVariable String syncType) {
-        SyncStatus status = syncStatusRepository.findBySyncType(
-                SyncType.valueOf(syncType.toUpperCase())
-        ).orElse(null);
+        SyncType type = SyncType.valueOf(syncType.toUpperCase());
+        if (syncJobRegistry.requestStop(type)) {
+            // The sync itself stores PAUSED once its current page is committed
+            return ResponseEntity.ok(Map.of(
+                    "message", "Sync wordt gepauzeerd",
+                    "syncType", syncType
+            ));
+        }
+
+        SyncStatus status = syncStatusRepository.findBySyncType(type).orElse(null);
 
         if (status != null) {
             status.setStatus(SyncStatusEnum.PAUSED);
@@ -721,8 +786,116 @@ public class SyncMonitorController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Continues a paused or failed sync from the page after its checkpoint
+     */
+    @PostMapping("/resume/{syncType}")
+    public ResponseEntity<Map<String, String>> resumeSync(@PathVariable String syncType) {
+        if (!syncOrchestrator.resume(SyncType.valueOf(syncType.toUpperCase()))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "message", "Sync is al bezig",
+                    "syncType", syncType
+            ));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "message", "Sync hervat op de achtergrond",
+                "syncType", syncType
+        ));
+    }
+
+    /**
+     * Items per state of the sync work queue and the most recent items that
+     * gave up
+     */
+    @GetMapping("/work")
+    public ResponseEntity<Map<String, Object>> getWorkQueue() {
+        Map<String, Long> itemsByState = new LinkedHashMap<>();
+        for (SyncWorkState state : SyncWorkState.values()) {
+            itemsByState.put(state.name(), 0L);
+        }
+        for (SyncWorkStateCount count : syncWorkItemRepository.countByState()) {
+            itemsByState.put(count.state().name(), count.itemCount());
+        }
+
+        List<Map<String, Object>> failed = syncWorkItemRepository
+                .findByStateOrderByUpdatedAtDesc(SyncWorkState.FAILED, PageRequest.of(0, 20)).stream()
+                .map(item -> {
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    map.put("entityType", item.getEntityType());
+                    map.put("remoteId", item.getRemoteId());
+                    map.put("action", item.getAction());
+                    map.put("attempts", item.getAttempts());
+                    map.put("lastError", item.getLastError());
+                    map.put("updatedAt", item.getUpdatedAt());
+                    return map;
+                })
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("itemsByState", itemsByState);
+        response.put("failed", failed);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Gives all FAILED work items a fresh set of attempts
+     */
+    @PostMapping("/work/retry-failed")
+    public ResponseEntity<Map<String, Object>> retryFailedWork() {
+        int count = syncWorkQueue.retryFailed();
+        return ResponseEntity.ok(Map.of(
+                "message", count + " items opnieuw ingepland",
+                "count", count
+        ));
+    }
+
     // ==================== HELPER METHODS ====================
 
+    /**
+     * A JSON body for endpoints that otherwise stream
+     */
+    private StreamingResponseBody json(Object value) {
+        return out -> objectMapper.writeValue(out, value);
+    }
+
+    @FunctionalInterface
+    private interface TableExport {
+        void write(TableWriter writer) throws IOException;
+    }
+
+    /**
+     * Streams a table export as CSV or XLSX, named after the export and today
+     */
+    private ResponseEntity<StreamingResponseBody> tableExport(String name, String format, TableExport export) {
+        TableWriter.Format tableFormat;
+        try {
+            tableFormat = TableWriter.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(json(Map.of(
+                        "success", false,
+                        "error", e.getMessage()
+                    )));
+        }
+
+        String fileName = name + "-" + LocalDate.now() + "." + tableFormat.extension();
+        StreamingResponseBody body = out -> {
+            TableWriter writer = tableFormat.open(out);
+            export.write(writer);
+            writer.finish();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tableFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     private OrderDTO convertToOrderDTO(Order order) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
@@ -898,8 +1071,6 @@ public class SyncMonitorController {
             order.setDiscountAmount(discountAmount);
             order.setTotal(total);
 
-            order = orderRepository.save(order);
-
             // Create order items
             for (OrderCreateRequest.OrderItemRequest itemReq : request.getItems()) {
                 nl.embediq.woocommerce.entity.OrderItem orderItem = new nl.embediq.woocommerce.entity.OrderItem();
@@ -911,7 +1082,7 @@ public class SyncMonitorController {
                 order.getItems().add(orderItem);
             }
 
-            order = orderRepository.save(order);
+            order = orderService.save(order, null);
 
             log.info("Order created successfully with ID: {}", order.getId());
 
@@ -949,6 +1120,8 @@ public class SyncMonitorController {
                 ));
             }
 
+            RevenueRollupService.Snapshot previous = revenueRollupService.snapshot(order);
+
             // Update customer if changed
             if (request.getCustomerId() != null && !request.getCustomerId().equals(order.getCustomer().getId())) {
                 Customer customer = customerRepository.findById(request.getCustomerId())
@@ -963,7 +1136,6 @@ public class SyncMonitorController {
 
             // Clear existing items
             order.getItems().clear();
-            orderRepository.save(order);
 
             // Add new items
             BigDecimal subtotal = BigDecimal.ZERO;
@@ -990,7 +1162,8 @@ public class SyncMonitorController {
             order.setTotal(total);
             order.setUpdatedAt(LocalDateTime.now());
 
-            order = orderRepository.save(order);
+            orderService.save(order, previous);
+            invoiceStore.evict(id);
 
             log.info("Order updated successfully: {}", id);
 
@@ -1025,7 +1198,8 @@ public class SyncMonitorController {
             }
 
             String orderNumber = order.getOrderNumber();
-            orderRepository.delete(order);
+            orderService.delete(order);
+            invoiceStore.evict(id);
 
             log.info("Order deleted successfully: {} ({})", id, orderNumber);
 
@@ -1059,6 +1233,7 @@ public class SyncMonitorController {
                 ));
             }
 
+            RevenueRollupService.Snapshot previous = revenueRollupService.snapshot(order);
             order.getItems().removeIf(item -> item.getId().equals(itemId));
 
             // Recalculate totals
@@ -1076,7 +1251,8 @@ public class SyncMonitorController {
             order.setTotal(total);
             order.setUpdatedAt(LocalDateTime.now());
 
-            orderRepository.save(order);
+            orderService.save(order, previous);
+            invoiceStore.evict(orderId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -1095,21 +1271,7 @@ public class SyncMonitorController {
     @GetMapping("/products/search")
     public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam(required = false) String query) {
         try {
-            List<nl.embediq.woocommerce.entity.Product> products;
-
-            if (query != null && !query.isEmpty()) {
-                products = productRepository.findAll().stream()
-                    .filter(p -> p.getName().toLowerCase().contains(query.toLowerCase()) ||
-                                (p.getSku() != null && p.getSku().toLowerCase().contains(query.toLowerCase())))
-                    .limit(20)
-                    .collect(Collectors.toList());
-            } else {
-                products = productRepository.findAll().stream()
-                    .limit(20)
-                    .collect(Collectors.toList());
-            }
-
-            List<ProductDTO> dtos = products.stream()
+            List<ProductDTO> dtos = searchService.searchProducts(query, 20).stream()
                 .map(this::convertToProductDTO)
                 .collect(Collectors.toList());
 
@@ -1123,24 +1285,7 @@ public class SyncMonitorController {
     @GetMapping("/customers/search")
     public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam(required = false) String query) {
         try {
-            List<Customer> customers;
-
-            if (query != null && !query.isEmpty()) {
-                String searchLower = query.toLowerCase();
-                customers = customerRepository.findAll().stream()
-                    .filter(c ->
-                        c.getEmail().toLowerCase().contains(searchLower) ||
-                        c.getFirstName().toLowerCase().contains(searchLower) ||
-                        c.getLastName().toLowerCase().contains(searchLower))
-                    .limit(20)
-                    .collect(Collectors.toList());
-            } else {
-                customers = customerRepository.findAll().stream()
-                    .limit(20)
-                    .collect(Collectors.toList());
-            }
-
-            List<CustomerDTO> dtos = customers.stream()
+            List<CustomerDTO> dtos = searchService.searchCustomers(query, 20).stream()
                 .map(this::convertToCustomerDTO)
                 .collect(Collectors.toList());
 
@@ -1601,8 +1746,10 @@ public class SyncMonitorController {
                 nl.embediq.woocommerce.enums.OrderStatus orderStatus =
                     nl.embediq.woocommerce.enums.OrderStatus.valueOf(newStatus.toUpperCase());
 
+                RevenueRollupService.Snapshot previous = revenueRollupService.snapshot(order);
                 order.setStatus(orderStatus);
-                orderRepository.save(order);
+                orderService.save(order, previous);
+                invoiceStore.evict(orderId);
 
                 log.info("Order {} status updated to: {}", orderId, newStatus);
 
@@ -1683,6 +1830,17 @@ public class SyncMonitorController {
         return ResponseEntity.ok(expensePage);
     }
 
+    @GetMapping("/expenses/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo
+    ) {
+        return tableExport("uitgaven", format,
+                writer -> dataExportService.writeExpenses(writer, category, dateFrom, dateTo));
+    }
+
     @GetMapping("/expenses/{id}")
     public ResponseEntity<ExpenseDTO> getExpenseById(@PathVariable Long id) {
         return expenseRepository.findById(id)
@@ -1706,6 +1864,7 @@ public class SyncMonitorController {
                 request.getExpenseDate() : LocalDateTime.now());
 
             expense = expenseRepository.save(expense);
+            eventPublisher.publishEvent(new ExpenseChangedEvent(expense.getId()));
 
             log.info("Expense created successfully with ID: {}", expense.getId());
 
@@ -1746,6 +1905,7 @@ public class SyncMonitorController {
             }
 
             expense = expenseRepository.save(expense);
+            eventPublisher.publishEvent(new ExpenseChangedEvent(id));
 
             log.info("Expense updated successfully: {}", id);
 
@@ -1774,6 +1934,7 @@ public class SyncMonitorController {
             }
 
             expenseRepository.deleteById(id);
+            eventPublisher.publishEvent(new ExpenseChangedEvent(id));
 
             log.info("Expense deleted: {}", id);
 
@@ -1808,58 +1969,7 @@ public class SyncMonitorController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo
     ) {
-        List<nl.embediq.woocommerce.entity.Expense> expenses = expenseRepository.findAll();
-
-        // Apply date filter
-        if (dateFrom != null) {
-            expenses = expenses.stream()
-                .filter(e -> e.getExpenseDate().isAfter(dateFrom))
-                .collect(Collectors.toList());
-        }
-
-        if (dateTo != null) {
-            expenses = expenses.stream()
-                .filter(e -> e.getExpenseDate().isBefore(dateTo))
-                .collect(Collectors.toList());
-        }
-
-        // Calculate total
-        BigDecimal totalExpenses = expenses.stream()
-            .map(nl.embediq.woocommerce.entity.Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Group by category
-        Map<String, BigDecimal> byCategory = expenses.stream()
-            .collect(Collectors.groupingBy(
-                nl.embediq.woocommerce.entity.Expense::getCategory,
-                Collectors.reducing(BigDecimal.ZERO,
-                    nl.embediq.woocommerce.entity.Expense::getAmount,
-                    BigDecimal::add)
-            ));
-
-        // Monthly expenses (last 6 months)
-        Map<String, BigDecimal> monthlyExpenses = new LinkedHashMap<>();
-        for (int i = 5; i >= 0; i--) {
-            LocalDate month = LocalDate.now().minusMonths(i);
-            LocalDateTime startOfMonth = month.withDayOfMonth(1).atStartOfDay();
-            LocalDateTime endOfMonth = month.withDayOfMonth(month.lengthOfMonth()).atTime(23, 59, 59);
-
-            BigDecimal monthTotal = expenses.stream()
-                .filter(e -> e.getExpenseDate().isAfter(startOfMonth) &&
-                           e.getExpenseDate().isBefore(endOfMonth))
-                .map(nl.embediq.woocommerce.entity.Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            monthlyExpenses.put(month.toString().substring(0, 7), monthTotal);
-        }
-
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalExpenses", totalExpenses);
-        stats.put("expenseCount", expenses.size());
-        stats.put("byCategory", byCategory);
-        stats.put("monthlyExpenses", monthlyExpenses);
-
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(dashboardService.getExpenseStatistics(dateFrom, dateTo));
     }
 
     private ExpenseDTO convertToExpenseDTO(nl.embediq.woocommerce.entity.Expense expense) {
@@ -0,0 +1,51 @@
+package nl.embediq.woocommerce.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.service.WebhookIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Endpoint for WooCommerce webhooks (Settings > Advanced > Webhooks, delivery
+ * URL /api/webhooks/woocommerce). Not behind JWT; every delivery must carry a
+ * valid signature made with woocommerce.webhook.secret.
+ */
+@RestController
+@RequestMapping("/api/webhooks")
+@Slf4j
+public class WooCommerceWebhookController {
+
+    @Autowired
+    private WebhookIngestService webhookIngestService;
+
+    @PostMapping("/woocommerce")
+    public ResponseEntity<Map<String, String>> receive(
+            @RequestHeader(value = "X-WC-Webhook-Topic", required = false) String topic,
+            @RequestHeader(value = "X-WC-Webhook-Signature", required = false) String signature,
+            @RequestBody(required = false) byte[] body) {
+
+        if (topic == null) {
+            // WooCommerce pings the URL without a topic when the webhook is saved
+            return ResponseEntity.ok(Map.of("status", "ok"));
+        }
+
+        byte[] payload = body != null ? body : new byte[0];
+        if (!webhookIngestService.isSignatureValid(payload, signature)) {
+            log.warn("Rejected {} webhook with invalid signature", topic);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid signature"));
+        }
+
+        try {
+            WebhookIngestService.Outcome outcome = webhookIngestService.enqueue(topic, payload);
+            return ResponseEntity.ok(Map.of("status", outcome.name().toLowerCase()));
+        } catch (IOException e) {
+            log.warn("Rejected {} webhook with unreadable body: {}", topic, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid JSON"));
+        }
+    }
+}
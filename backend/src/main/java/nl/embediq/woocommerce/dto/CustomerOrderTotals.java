@@ -0,0 +1,23 @@
+package nl.embediq.woocommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Order count and amount spent for one customer
+ */
+public record CustomerOrderTotals(Long customerId,
+                                  String firstName,
+                                  String lastName,
+                                  String email,
+                                  Long orderCount,
+                                  BigDecimal totalSpent) {
+
+    public CustomerStats toCustomerStats() {
+        CustomerStats stats = new CustomerStats();
+        stats.setName(firstName + " " + lastName);
+        stats.setEmail(email);
+        stats.setOrderCount(orderCount.intValue());
+        stats.setTotalSpent(totalSpent != null ? totalSpent : BigDecimal.ZERO);
+        return stats;
+    }
+}
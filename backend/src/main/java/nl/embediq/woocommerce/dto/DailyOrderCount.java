@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Number of orders created on a given day
+ */
+public record DailyOrderCount(LocalDate date, Long orderCount) {
+}
@@ -0,0 +1,8 @@
+package nl.embediq.woocommerce.dto;
+
+/**
+ * Record counts shown on the dashboard, see DashboardService#getDashboardCounts
+ */
+public record DashboardCounts(long totalOrders, long totalCustomers, long totalProducts,
+                              long ordersSyncedToday, long customersSyncedToday, long productsSyncedToday) {
+}
@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Total and number of expenses in a category during one calendar month
+ */
+public record ExpenseMonthTotal(String category, Integer year, Integer month, BigDecimal amount, Long expenseCount) {
+}
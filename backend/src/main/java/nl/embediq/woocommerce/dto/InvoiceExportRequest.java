@@ -0,0 +1,20 @@
+package nl.embediq.woocommerce.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Either orderIds or a from/to range of order dates, both days inclusive
+ */
+@Data
+public class InvoiceExportRequest {
+    private List<Long> orderIds;
+    private LocalDate from;
+    private LocalDate to;
+    /**
+     * zip (default) or pdf for one merged document
+     */
+    private String format;
+}
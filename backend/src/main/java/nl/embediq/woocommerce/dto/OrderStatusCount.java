@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.dto;
+
+import nl.embediq.woocommerce.enums.OrderStatus;
+
+/**
+ * Number of orders with a given status
+ */
+public record OrderStatusCount(OrderStatus status, Long orderCount) {
+}
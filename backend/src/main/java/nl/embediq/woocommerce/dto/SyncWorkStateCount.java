@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.dto;
+
+import nl.embediq.woocommerce.enums.SyncWorkState;
+
+/**
+ * Number of sync work items in one state
+ */
+public record SyncWorkStateCount(SyncWorkState state, Long itemCount) {
+}
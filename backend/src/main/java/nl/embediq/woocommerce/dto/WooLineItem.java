@@ -2,6 +2,7 @@ package nl.embediq.woocommerce.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
 import java.util.List;
@@ -22,5 +23,6 @@ public class WooLineItem {
     private String total;
 
     @JsonProperty("meta_data")
+    @JsonDeserialize(using = WooMetaDataListDeserializer.class)
     private List<WooMetaData> metaData;
 }
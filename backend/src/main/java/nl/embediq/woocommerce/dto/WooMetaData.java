@@ -4,6 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
+/**
+ * Scalar values are kept as text; see {@link WooMetaDataListDeserializer}
+ */
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class WooMetaData {
@@ -12,12 +15,12 @@ public class WooMetaData {
 
     private String key;
 
-    private Object value;
+    private String value;
 
     @JsonProperty("display_key")
     private String displayKey;
 
     @JsonProperty("display_value")
-    private Object displayValue;
+    private String displayValue;
 }
 
@@ -0,0 +1,81 @@
+package nl.embediq.woocommerce.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a meta_data array straight from the token stream and keeps only the
+ * entries we store: internal keys (starting with _) and entries whose value
+ * or display_value is an object or array are skipped without building them.
+ * Add-on plugins put large nested structures in those entries.
+ */
+public class WooMetaDataListDeserializer extends JsonDeserializer<List<WooMetaData>> {
+
+    @Override
+    public List<WooMetaData> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        List<WooMetaData> result = new ArrayList<>();
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return result;
+        }
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            WooMetaData meta = readEntry(p);
+            if (meta != null) {
+                result.add(meta);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads one entry, returns null when it should be skipped
+     */
+    private static WooMetaData readEntry(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+
+        WooMetaData meta = new WooMetaData();
+        boolean skip = false;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+
+            if (token.isStructStart()) {
+                // Nested objects are never stored
+                p.skipChildren();
+                if ("value".equals(field) || "display_value".equals(field)) {
+                    skip = true;
+                }
+                continue;
+            }
+            if (skip) {
+                continue;
+            }
+
+            String text = token == JsonToken.VALUE_NULL ? null : p.getText();
+            switch (field) {
+                case "id" -> meta.setId(token.isNumeric() ? p.getLongValue() : null);
+                case "key" -> {
+                    meta.setKey(text);
+                    skip = text == null || text.startsWith("_");
+                }
+                case "value" -> meta.setValue(text);
+                case "display_key" -> meta.setDisplayKey(text);
+                case "display_value" -> meta.setDisplayValue(text);
+                default -> { }
+            }
+        }
+
+        return skip || meta.getKey() == null ? null : meta;
+    }
+}
@@ -0,0 +1,12 @@
+package nl.embediq.woocommerce.dto;
+
+/**
+ * One page of a WooCommerce list endpoint together with the paging headers
+ *
+ * @param size       number of records on the page
+ * @param items      the records; may bind them lazily while iterating
+ * @param totalPages value of X-WP-TotalPages, 0 when the header is missing
+ * @param totalItems value of X-WP-Total, 0 when the header is missing
+ */
+public record WooPage<T>(int page, int size, Iterable<T> items, int totalPages, long totalItems) {
+}
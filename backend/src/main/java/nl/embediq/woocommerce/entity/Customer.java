@@ -63,6 +63,14 @@ public class Customer {
     
     @Column(name = "last_synced_at")
     private LocalDateTime lastSyncedAt;
+
+    @Column(name = "sync_hash")
+    @JsonIgnore
+    private Long syncHash;
+
+    @Column(name = "woo_modified_at")
+    @JsonIgnore
+    private LocalDateTime wooModifiedAt;
     
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -58,4 +58,12 @@ public class Order {
     
     @Column(name = "last_synced_at")
     private LocalDateTime lastSyncedAt;
+
+    @Column(name = "sync_hash")
+    @JsonIgnore
+    private Long syncHash;
+
+    @Column(name = "items_hash")
+    @JsonIgnore
+    private Long itemsHash;
 }
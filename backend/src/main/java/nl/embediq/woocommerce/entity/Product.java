@@ -58,6 +58,12 @@ public class Product {
     @Column(name = "last_synced_at")
     private LocalDateTime lastSyncedAt;
 
+    @Column(name = "sync_hash")
+    private Long syncHash;
+
+    @Column(name = "woo_modified_at")
+    private LocalDateTime wooModifiedAt;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ProductVariation> variations = new ArrayList<>();
 
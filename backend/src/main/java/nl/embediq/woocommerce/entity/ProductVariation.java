@@ -57,6 +57,9 @@ public class ProductVariation {
     @Column(name = "last_synced_at")
     private LocalDateTime lastSyncedAt;
 
+    @Column(name = "sync_hash")
+    private Long syncHash;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -0,0 +1,35 @@
+package nl.embediq.woocommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import nl.embediq.woocommerce.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Order count and revenue for one day and order status, maintained by
+ * {@code RevenueRollupService}
+ */
+@Entity
+@Table(name = "revenue_daily_rollup")
+@Data
+public class RevenueDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount;
+
+    @Column(name = "revenue", nullable = false)
+    private BigDecimal revenue;
+}
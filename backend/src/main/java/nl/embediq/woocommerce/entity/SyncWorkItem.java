@@ -0,0 +1,68 @@
+package nl.embediq.woocommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import nl.embediq.woocommerce.enums.SyncWorkState;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single WooCommerce record waiting to be applied, maintained by
+ * {@code SyncWorkQueue}
+ */
+@Entity
+@Table(name = "sync_work_items",
+        uniqueConstraints = @UniqueConstraint(name = "uk_work_item",
+                columnNames = {"entity_type", "remote_id", "action"}))
+@Data
+public class SyncWorkItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private SyncType entityType;
+
+    @Column(name = "remote_id", nullable = false)
+    private Long remoteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 20)
+    private SyncWorkAction action;
+
+    /**
+     * The record as delivered by a webhook; null when it is fetched from
+     * WooCommerce when processed
+     */
+    @Column(name = "payload", columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Column(name = "payload_hash")
+    private Long payloadHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 20)
+    private SyncWorkState state;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
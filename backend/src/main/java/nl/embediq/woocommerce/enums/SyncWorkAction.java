@@ -0,0 +1,7 @@
+package nl.embediq.woocommerce.enums;
+
+public enum SyncWorkAction {
+    UPSERT,
+    DELETE,
+    VARIATIONS
+}
@@ -0,0 +1,8 @@
+package nl.embediq.woocommerce.enums;
+
+public enum SyncWorkState {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,10 @@
+package nl.embediq.woocommerce.event;
+
+/**
+ * Published by the customer sync after each page has been committed, so
+ * order pages waiting for those customers can look again
+ *
+ * @param page the WooCommerce page number
+ */
+public record CustomerPageSyncedEvent(int page) {
+}
@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.event;
+
+/**
+ * Published whenever an expense is created, updated or deleted
+ *
+ * @param expenseId id of the expense
+ */
+public record ExpenseChangedEvent(Long expenseId) {
+}
@@ -0,0 +1,10 @@
+package nl.embediq.woocommerce.event;
+
+/**
+ * Published whenever an order is created, updated or deleted, so derived
+ * data such as cached statistics can be refreshed
+ *
+ * @param orderId id of the order, null if it was never saved
+ */
+public record OrderChangedEvent(Long orderId) {
+}
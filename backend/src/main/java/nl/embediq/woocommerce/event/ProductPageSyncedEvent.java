@@ -0,0 +1,9 @@
+package nl.embediq.woocommerce.event;
+
+/**
+ * Published by the product sync after each page has been committed
+ *
+ * @param page the WooCommerce page number
+ */
+public record ProductPageSyncedEvent(int page) {
+}
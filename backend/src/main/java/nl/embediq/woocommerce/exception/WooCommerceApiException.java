@@ -5,12 +5,31 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
 public class WooCommerceApiException extends RuntimeException {
+
+    /**
+     * HTTP status returned by WooCommerce, 0 if no response was received
+     */
+    private final int statusCode;
     
     public WooCommerceApiException(String message) {
+        this(message, 0);
+    }
+
+    public WooCommerceApiException(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
     }
     
     public WooCommerceApiException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isServerError() {
+        return statusCode >= 500;
     }
 }
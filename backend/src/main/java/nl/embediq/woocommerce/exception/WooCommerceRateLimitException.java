@@ -3,10 +3,26 @@ package nl.embediq.woocommerce.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.time.Duration;
+
 @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
 public class WooCommerceRateLimitException extends RuntimeException {
+
+    /**
+     * Wait requested by the Retry-After header, null if absent
+     */
+    private final Duration retryAfter;
     
     public WooCommerceRateLimitException(String message) {
+        this(message, null);
+    }
+
+    public WooCommerceRateLimitException(String message, Duration retryAfter) {
         super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
     }
 }
@@ -1,12 +1,16 @@
 package nl.embediq.woocommerce.repository;
 
 import nl.embediq.woocommerce.entity.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +20,34 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     Optional<Customer> findByEmail(String email);
 
+    List<Customer> findByWooCommerceIdIn(Collection<Long> wooCommerceIds);
+
+    List<Customer> findByEmailIn(Collection<String> emails);
+
+    /**
+     * Marks customers as seen by a sync without rewriting them
+     */
+    @Modifying
+    @Query("UPDATE Customer c SET c.lastSyncedAt = :syncedAt WHERE c.id IN :ids")
+    int touchLastSyncedAt(@Param("ids") Collection<Long> ids, @Param("syncedAt") LocalDateTime syncedAt);
+
+    /**
+     * Full-text search over name, email and company, best match first.
+     * Expects a boolean-mode query as built by {@code SearchService}.
+     */
+    @Query(value = "SELECT * FROM customers " +
+            "WHERE MATCH(first_name, last_name, email, company_name) AGAINST (:search IN BOOLEAN MODE) " +
+            "ORDER BY MATCH(first_name, last_name, email, company_name) AGAINST (:search IN BOOLEAN MODE) DESC, id DESC",
+            nativeQuery = true)
+    List<Customer> searchCustomers(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Prefix fallback for terms too short for the full-text index
+     */
+    @Query("SELECT c FROM Customer c WHERE c.email LIKE CONCAT(:prefix, '%') " +
+            "OR c.firstName LIKE CONCAT(:prefix, '%') OR c.lastName LIKE CONCAT(:prefix, '%')")
+    List<Customer> findByNameOrEmailStartingWith(@Param("prefix") String prefix, Pageable pageable);
+
     @Query("SELECT COUNT(c) FROM Customer c WHERE c.createdAt >= :since")
     Long countSyncedSince(@Param("since") LocalDateTime since);
 }
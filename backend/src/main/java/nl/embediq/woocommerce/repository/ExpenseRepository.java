@@ -1,8 +1,10 @@
 package nl.embediq.woocommerce.repository;
 
+import nl.embediq.woocommerce.dto.ExpenseMonthTotal;
 import nl.embediq.woocommerce.entity.Expense;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,6 +17,18 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
     List<Expense> findByExpenseDateBetween(LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Expense totals per category and month, strictly between the given
+     * dates; a null date leaves that side open
+     */
+    @Query("SELECT new nl.embediq.woocommerce.dto.ExpenseMonthTotal(" +
+            "e.category, YEAR(e.expenseDate), MONTH(e.expenseDate), SUM(e.amount), COUNT(e)) " +
+            "FROM Expense e " +
+            "WHERE (:from IS NULL OR e.expenseDate > :from) AND (:to IS NULL OR e.expenseDate < :to) " +
+            "GROUP BY e.category, YEAR(e.expenseDate), MONTH(e.expenseDate)")
+    List<ExpenseMonthTotal> sumPerCategoryAndMonth(@Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
     @Query("SELECT DISTINCT e.category FROM Expense e ORDER BY e.category")
     List<String> findDistinctCategories();
 
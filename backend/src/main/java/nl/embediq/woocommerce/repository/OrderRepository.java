@@ -1,19 +1,72 @@
 package nl.embediq.woocommerce.repository;
 
+import nl.embediq.woocommerce.dto.CustomerOrderTotals;
+import nl.embediq.woocommerce.dto.DailyOrderCount;
+import nl.embediq.woocommerce.dto.OrderStatusCount;
 import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.enums.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
-    
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+
     Optional<Order> findByWooCommerceId(Long wooCommerceId);
-    
+
     @Query("SELECT COUNT(o) FROM Order o WHERE o.createdAt >= :since")
     Long countSyncedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Loads the given orders with customer and items in a single query,
+     * used to hydrate one page of results without N+1 lazy loads.
+     */
+    @Query("SELECT DISTINCT o FROM Order o " +
+            "LEFT JOIN FETCH o.customer " +
+            "LEFT JOIN FETCH o.items " +
+            "WHERE o.id IN :ids")
+    List<Order> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT o.id FROM Order o WHERE o.createdAt >= :from AND o.createdAt < :to " +
+            "ORDER BY o.createdAt, o.id")
+    List<Long> findIdsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new nl.embediq.woocommerce.dto.OrderStatusCount(o.status, COUNT(o)) " +
+            "FROM Order o GROUP BY o.status")
+    List<OrderStatusCount> countByStatus();
+
+    @Query("SELECT new nl.embediq.woocommerce.dto.DailyOrderCount(EXTRACT(DATE FROM o.createdAt), COUNT(o)) " +
+            "FROM Order o WHERE o.createdAt >= :since " +
+            "GROUP BY EXTRACT(DATE FROM o.createdAt)")
+    List<DailyOrderCount> countPerDaySince(@Param("since") LocalDateTime since);
+
+    /**
+     * Customers with the most orders, all statuses included
+     */
+    @Query("SELECT new nl.embediq.woocommerce.dto.CustomerOrderTotals(" +
+            "c.id, c.firstName, c.lastName, c.email, COUNT(o), SUM(o.total)) " +
+            "FROM Order o JOIN o.customer c " +
+            "GROUP BY c.id, c.firstName, c.lastName, c.email " +
+            "ORDER BY COUNT(o) DESC, c.id")
+    List<CustomerOrderTotals> findTopCustomersByOrderCount(Pageable pageable);
+
+    /**
+     * Customers ranked by the total of their orders in the given statuses
+     */
+    @Query("SELECT new nl.embediq.woocommerce.dto.CustomerOrderTotals(" +
+            "c.id, c.firstName, c.lastName, c.email, COUNT(o), SUM(o.total)) " +
+            "FROM Order o JOIN o.customer c " +
+            "WHERE o.status IN :statuses " +
+            "GROUP BY c.id, c.firstName, c.lastName, c.email " +
+            "ORDER BY SUM(o.total) DESC, c.id")
+    List<CustomerOrderTotals> findTopCustomersBySpend(@Param("statuses") Collection<OrderStatus> statuses,
+                                                      Pageable pageable);
 }
@@ -0,0 +1,100 @@
+package nl.embediq.woocommerce.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import nl.embediq.woocommerce.config.FullTextFunctionContributor;
+import nl.embediq.woocommerce.entity.Customer;
+import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.enums.OrderStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Composable filters for the order overview. Every method returns {@code null}
+ * when its parameter is empty, so the filters can be chained unconditionally.
+ */
+public final class OrderSpecifications {
+
+    /**
+     * Escape character for LIKE patterns. Not a backslash, which MariaDB
+     * would also read as an escape inside the SQL string literal.
+     */
+    private static final char LIKE_ESCAPE = '!';
+
+    private OrderSpecifications() {
+    }
+
+    /**
+     * Matches orders whose number starts with the search term or whose
+     * customer matches it. A term of only digits matches anywhere in the
+     * order number, so a manual order (numbered yyyyMMddHHmmss) is also
+     * found by its time; that match scans the order numbers instead of
+     * seeking the index. The customer is matched in a subquery, through the
+     * full-text index when the term is long enough for it and by name or
+     * email prefix otherwise, so any number of matching customers is covered.
+     * '%' and '_' in the term are matched literally.
+     *
+     * @param fullTextQuery the search as boolean-mode query, null when no term is in the index.
+     *                      Hibernate inlines it in the SQL, which is safe for the letters, digits
+     *                      and operators SearchService#toBooleanQuery produces.
+     */
+    public static Specification<Order> matchesSearch(String search, String fullTextQuery) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+        String term = escapeLike(search.trim());
+        String prefix = term + "%";
+        String orderNumberPattern = term.chars().allMatch(Character::isDigit) ? "%" + prefix : prefix;
+        return (root, query, cb) -> {
+            Subquery<Long> customerIds = query.subquery(Long.class);
+            Root<Customer> customer = customerIds.from(Customer.class);
+            Predicate customerMatches = fullTextQuery != null
+                    ? cb.isTrue(cb.function(FullTextFunctionContributor.CUSTOMER_FULLTEXT, Boolean.class,
+                            customer.get("firstName"), customer.get("lastName"), customer.get("email"),
+                            customer.get("companyName"), cb.literal(fullTextQuery)))
+                    : cb.or(cb.like(customer.get("email"), prefix, LIKE_ESCAPE),
+                            cb.like(customer.get("firstName"), prefix, LIKE_ESCAPE),
+                            cb.like(customer.get("lastName"), prefix, LIKE_ESCAPE));
+            customerIds.select(customer.get("id")).where(customerMatches);
+
+            return cb.or(cb.like(root.get("orderNumber"), orderNumberPattern, LIKE_ESCAPE),
+                    root.get("customer").get("id").in(customerIds));
+        };
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * Matches the status case-insensitively; an unknown status matches nothing
+     */
+    public static Specification<Order> hasStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            try {
+                return cb.equal(root.get("status"), OrderStatus.valueOf(status.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                return cb.disjunction();
+            }
+        };
+    }
+
+    public static Specification<Order> createdAfter(LocalDateTime dateFrom) {
+        if (dateFrom == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThan(root.get("createdAt"), dateFrom);
+    }
+
+    public static Specification<Order> createdBefore(LocalDateTime dateTo) {
+        if (dateTo == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(root.get("createdAt"), dateTo);
+    }
+}
@@ -4,27 +4,53 @@ import nl.embediq.woocommerce.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     Optional<Product> findByWooCommerceId(Long wooCommerceId);
 
+    List<Product> findByWooCommerceIdIn(Collection<Long> wooCommerceIds);
+
     Optional<Product> findBySku(String sku);
 
     Page<Product> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE " +
-            "LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%'))")
-    Page<Product> searchProducts(@Param("search") String search, Pageable pageable);
+    /**
+     * Full-text search over name, SKU and description, best match first.
+     * Expects a boolean-mode query as built by {@code SearchService}.
+     */
+    @Query(value = "SELECT * FROM products " +
+            "WHERE MATCH(name, sku, description) AGAINST (:search IN BOOLEAN MODE) " +
+            "ORDER BY MATCH(name, sku, description) AGAINST (:search IN BOOLEAN MODE) DESC, id DESC",
+            nativeQuery = true)
+    List<Product> searchProducts(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Prefix fallback for terms too short for the full-text index
+     */
+    @Query("SELECT p FROM Product p WHERE p.sku LIKE CONCAT(:prefix, '%') OR p.name LIKE CONCAT(:prefix, '%')")
+    List<Product> findByNameOrSkuStartingWith(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variations WHERE p.id IN :ids")
+    List<Product> findWithVariationsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Marks products as synced without loading them, for records whose sync hash is unchanged
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.lastSyncedAt = :syncedAt WHERE p.id IN :ids")
+    int touchLastSyncedAt(@Param("ids") Collection<Long> ids, @Param("syncedAt") LocalDateTime syncedAt);
 
     @Query("SELECT COUNT(p) FROM Product p WHERE p.createdAt >= :since")
     Long countSyncedSince(@Param("since") LocalDateTime since);
@@ -0,0 +1,55 @@
+package nl.embediq.woocommerce.repository;
+
+import nl.embediq.woocommerce.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+/**
+ * Composable filters for the product catalog. Every method returns {@code null}
+ * when its parameter is empty, so the filters can be chained unconditionally.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Matches on product name or SKU
+     */
+    public static Specification<Product> matchesSearch(String search) {
+        if (search == null || search.isEmpty()) {
+            return null;
+        }
+        String pattern = "%" + search.toLowerCase() + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), pattern),
+                cb.like(cb.lower(root.get("sku")), pattern)
+        );
+    }
+
+    /**
+     * Plain equality so idx_status_price can be used; the column collation
+     * already makes the comparison case-insensitive.
+     */
+    public static Specification<Product> hasStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Product> priceAtLeast(BigDecimal minPrice) {
+        if (minPrice == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(BigDecimal maxPrice) {
+        if (maxPrice == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+}
@@ -3,8 +3,13 @@ package nl.embediq.woocommerce.repository;
 import nl.embediq.woocommerce.entity.Product;
 import nl.embediq.woocommerce.entity.ProductVariation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,9 +18,18 @@ public interface ProductVariationRepository extends JpaRepository<ProductVariati
 
     Optional<ProductVariation> findByWooCommerceId(Long wooCommerceId);
 
+    List<ProductVariation> findByWooCommerceIdIn(Collection<Long> wooCommerceIds);
+
     List<ProductVariation> findByProduct(Product product);
 
     List<ProductVariation> findByProductId(Long productId);
 
     void deleteByProductAndWooCommerceIdNotIn(Product product, List<Long> keepIds);
+
+    /**
+     * Marks variations as synced without loading them, for records whose sync hash is unchanged
+     */
+    @Modifying
+    @Query("UPDATE ProductVariation v SET v.lastSyncedAt = :syncedAt WHERE v.id IN :ids")
+    int touchLastSyncedAt(@Param("ids") Collection<Long> ids, @Param("syncedAt") LocalDateTime syncedAt);
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package nl.embediq.woocommerce.repository;
+
+import nl.embediq.woocommerce.entity.RevenueDailyRollup;
+import nl.embediq.woocommerce.enums.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RevenueDailyRollupRepository extends JpaRepository<RevenueDailyRollup, Long> {
+
+    List<RevenueDailyRollup> findByRollupDateBetweenAndStatusIn(
+            LocalDate start, LocalDate end, Collection<OrderStatus> statuses);
+
+    @Query("SELECT DISTINCT YEAR(r.rollupDate) FROM RevenueDailyRollup r " +
+            "WHERE r.status IN :statuses AND r.orderCount > 0 " +
+            "ORDER BY YEAR(r.rollupDate) DESC")
+    List<Integer> findYearsWithOrders(@Param("statuses") Collection<OrderStatus> statuses);
+
+    /**
+     * Adds the deltas to the row for this day and status, creating it if needed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily_rollup (rollup_date, status, order_count, revenue) " +
+            "VALUES (:date, :status, :countDelta, :revenueDelta) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "revenue = revenue + VALUES(revenue)",
+            nativeQuery = true)
+    void applyDelta(@Param("date") LocalDate date,
+                    @Param("status") String status,
+                    @Param("countDelta") int countDelta,
+                    @Param("revenueDelta") BigDecimal revenueDelta);
+}
@@ -0,0 +1,21 @@
+package nl.embediq.woocommerce.repository;
+
+import nl.embediq.woocommerce.dto.SyncWorkStateCount;
+import nl.embediq.woocommerce.entity.SyncWorkItem;
+import nl.embediq.woocommerce.enums.SyncWorkState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncWorkItemRepository extends JpaRepository<SyncWorkItem, Long> {
+
+    @Query("SELECT new nl.embediq.woocommerce.dto.SyncWorkStateCount(w.state, COUNT(w)) " +
+            "FROM SyncWorkItem w GROUP BY w.state")
+    List<SyncWorkStateCount> countByState();
+
+    List<SyncWorkItem> findByStateOrderByUpdatedAtDesc(SyncWorkState state, Pageable pageable);
+}
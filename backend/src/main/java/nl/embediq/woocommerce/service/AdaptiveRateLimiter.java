@@ -0,0 +1,117 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by all WooCommerce requests. The refill rate adapts to
+ * how the store responds: it grows by a small step after every fast success
+ * and is cut when responses get slow, the server errors or we get throttled
+ * (additive increase, multiplicative decrease). A Retry-After pauses the
+ * whole bucket until the requested time.
+ */
+@Slf4j
+public class AdaptiveRateLimiter {
+
+    private static final double INCREASE_STEP = 0.1;
+    private static final double SLOW_DECREASE_FACTOR = 0.9;
+    private static final double ERROR_DECREASE_FACTOR = 0.75;
+    private static final double THROTTLE_DECREASE_FACTOR = 0.5;
+
+    private final double minRate;
+    private final double maxRate;
+    private final double burst;
+    private final long slowResponseMs;
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos;
+
+    /**
+     * @param initialRate    requests per second to start with
+     * @param minRate        lower bound for the rate
+     * @param maxRate        upper bound for the rate
+     * @param burst          maximum number of tokens that can be saved up
+     * @param slowResponseMs responses slower than this lower the rate
+     */
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, int burst, long slowResponseMs) {
+        this.minRate = minRate;
+        this.maxRate = Math.max(minRate, maxRate);
+        this.rate = clamp(initialRate);
+        this.burst = Math.max(1, burst);
+        this.tokens = 1;
+        this.slowResponseMs = slowResponseMs;
+    }
+
+    /**
+     * Blocks until a request may be sent
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (now - pausedUntilNanos < 0) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                } else {
+                    waitNanos = (long) ((1 - tokens) / rate * 1_000_000_000L);
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1_000_000L));
+        }
+    }
+
+    public synchronized void onSuccess(long latencyMs) {
+        if (latencyMs > slowResponseMs) {
+            setRate(rate * SLOW_DECREASE_FACTOR, "slow response (" + latencyMs + " ms)");
+        } else if (rate < maxRate) {
+            refill(System.nanoTime());
+            rate = clamp(rate + INCREASE_STEP);
+        }
+    }
+
+    public synchronized void onServerError() {
+        setRate(rate * ERROR_DECREASE_FACTOR, "server error");
+    }
+
+    public synchronized void onThrottled(Duration retryAfter) {
+        tokens = 0;
+        setRate(rate * THROTTLE_DECREASE_FACTOR, "throttled");
+        if (retryAfter != null && !retryAfter.isNegative()) {
+            long resumeAt = System.nanoTime() + retryAfter.toNanos();
+            if (resumeAt - pausedUntilNanos > 0) {
+                pausedUntilNanos = resumeAt;
+            }
+        }
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(burst, tokens + elapsedSeconds * rate);
+        lastRefillNanos = now;
+    }
+
+    private void setRate(double newRate, String reason) {
+        refill(System.nanoTime());
+        double previous = rate;
+        rate = clamp(newRate);
+        if (rate != previous) {
+            log.info("WooCommerce request rate lowered to {} req/s ({})", String.format("%.2f", rate), reason);
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(minRate, Math.min(maxRate, value));
+    }
+}
@@ -0,0 +1,72 @@
+package nl.embediq.woocommerce.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV in UTF-8, with a byte order mark so Excel reads the accents
+ */
+class CsvTableWriter implements TableWriter {
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Writer writer;
+
+    private boolean started;
+
+    CsvTableWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void row(Object... values) throws IOException {
+        if (!started) {
+            writer.write(BYTE_ORDER_MARK);
+            started = true;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString()
+                : value instanceof Number ? value.toString()
+                : text(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Text a spreadsheet would take for a formula, e.g. a customer name
+     * starting with '=', gets a leading quote; the values come from
+     * WooCommerce customers and are not trusted. XLSX needs no such quote,
+     * its inline strings are never evaluated.
+     */
+    private static String text(Object value) {
+        String text = value.toString();
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,210 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.WooBilling;
+import nl.embediq.woocommerce.entity.Customer;
+import nl.embediq.woocommerce.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Resolves the customers of a page of orders at once: registered customers
+ * by WooCommerce id and guests by billing email, each with a single IN query.
+ * Guests that do not exist yet are inserted in one batch.
+ */
+@Service
+@Slf4j
+public class CustomerResolver {
+
+    private static final String INSERT_GUEST =
+            "INSERT INTO customers (woo_commerce_id, email, first_name, last_name, company_name, phone, " +
+            "address, address_2, city, postal_code, state, country, discount, last_synced_at, created_at, updated_at) " +
+            "VALUES (NULL, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Customer ids for the orders of one page
+     */
+    public record PageCustomers(Map<Long, Long> byWooCommerceId, Map<String, Long> byEmail) {
+
+        /**
+         * Id of the order's customer, or null when it could not be resolved
+         */
+        public Long customerId(Long wooCustomerId, WooBilling billing) {
+            if (wooCustomerId != null && wooCustomerId > 0) {
+                return byWooCommerceId.get(wooCustomerId);
+            }
+            String key = emailKey(billing);
+            return key != null ? byEmail.get(key) : null;
+        }
+    }
+
+    /**
+     * @param wooCustomerIds customer ids of registered buyers
+     * @param guestBillings  billing data of guest checkouts
+     */
+    public PageCustomers resolve(Collection<Long> wooCustomerIds, Collection<WooBilling> guestBillings) {
+        return new PageCustomers(resolveRegistered(wooCustomerIds), resolveGuests(guestBillings));
+    }
+
+    private Map<Long, Long> resolveRegistered(Collection<Long> wooCustomerIds) {
+        Set<Long> ids = new HashSet<>(wooCustomerIds);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Long> result = new HashMap<>();
+        for (Customer customer : customerRepository.findByWooCommerceIdIn(ids)) {
+            result.put(customer.getWooCommerceId(), customer.getId());
+        }
+
+        if (result.size() < ids.size()) {
+            ids.removeAll(result.keySet());
+            log.warn("Customers {} not found, their orders are saved without customer", ids);
+        }
+        return result;
+    }
+
+    private Map<String, Long> resolveGuests(Collection<WooBilling> guestBillings) {
+        // First billing per email wins, like the order it came with
+        Map<String, WooBilling> billingByEmail = new LinkedHashMap<>();
+        for (WooBilling billing : guestBillings) {
+            String key = emailKey(billing);
+            if (key == null) {
+                log.warn("Email is null or empty in billing data, cannot create guest customer");
+                continue;
+            }
+            billingByEmail.putIfAbsent(key, billing);
+        }
+        if (billingByEmail.isEmpty()) {
+            return Map.of();
+        }
+
+        List<String> emails = billingByEmail.values().stream().map(WooBilling::getEmail).toList();
+        Map<String, Long> result = new HashMap<>();
+        List<Customer> updated = new ArrayList<>();
+
+        for (Customer customer : customerRepository.findByEmailIn(emails)) {
+            String key = emailKey(customer.getEmail());
+            WooBilling billing = billingByEmail.get(key);
+            if (billing != null && fillMissingDetails(customer, billing)) {
+                updated.add(customer);
+            }
+            result.put(key, customer.getId());
+        }
+        if (!updated.isEmpty()) {
+            customerRepository.saveAll(updated);
+            log.debug("Updated {} customers with address information", updated.size());
+        }
+
+        List<WooBilling> missing = billingByEmail.entrySet().stream()
+                .filter(entry -> !result.containsKey(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+        if (!missing.isEmpty()) {
+            insertGuests(missing);
+            jdbcTemplate.query("SELECT id, email FROM customers WHERE email IN (:emails)",
+                    Map.of("emails", missing.stream().map(WooBilling::getEmail).toList()),
+                    (RowCallbackHandler) rs -> result.put(emailKey(rs.getString("email")), rs.getLong("id")));
+        }
+        return result;
+    }
+
+    /**
+     * woo_commerce_id is NULL for guests, email is the unique identifier
+     */
+    private void insertGuests(List<WooBilling> billings) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_GUEST, billings, billings.size(), (ps, billing) -> {
+                ps.setString(1, billing.getEmail());
+                ps.setString(2, billing.getFirstName());
+                ps.setString(3, billing.getLastName());
+                ps.setString(4, billing.getCompany());
+                ps.setString(5, billing.getPhone());
+                ps.setString(6, billing.getAddress1());
+                ps.setString(7, billing.getAddress2());
+                ps.setString(8, billing.getCity());
+                ps.setString(9, billing.getPostcode());
+                ps.setString(10, billing.getState());
+                ps.setString(11, billing.getCountry());
+                ps.setTimestamp(12, now);
+                ps.setTimestamp(13, now);
+                ps.setTimestamp(14, now);
+            });
+            log.debug("Created {} guest customers", billings.size());
+        } catch (DataAccessException e) {
+            // Orders of guests that could not be saved are stored without customer
+            log.error("Error saving guest customers: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Completes an existing customer with billing data it does not have yet
+     *
+     * @return whether anything changed
+     */
+    private static boolean fillMissingDetails(Customer customer, WooBilling billing) {
+        boolean changed = false;
+        if (isEmpty(customer.getAddress()) && !isEmpty(billing.getAddress1())) {
+            customer.setCompanyName(billing.getCompany());
+            customer.setPhone(billing.getPhone());
+            customer.setAddress(billing.getAddress1());
+            customer.setAddress2(billing.getAddress2());
+            customer.setCity(billing.getCity());
+            customer.setPostalCode(billing.getPostcode());
+            customer.setState(billing.getState());
+            customer.setCountry(billing.getCountry());
+            changed = true;
+        }
+        if (isEmpty(customer.getCompanyName()) && !isEmpty(billing.getCompany())) {
+            customer.setCompanyName(billing.getCompany());
+            changed = true;
+        }
+        if (isEmpty(customer.getFirstName()) && !isEmpty(billing.getFirstName())) {
+            customer.setFirstName(billing.getFirstName());
+            changed = true;
+        }
+        if (isEmpty(customer.getLastName()) && !isEmpty(billing.getLastName())) {
+            customer.setLastName(billing.getLastName());
+            changed = true;
+        }
+        if (changed) {
+            customer.setLastSyncedAt(LocalDateTime.now());
+            // No longer what the customer sync last wrote
+            customer.setSyncHash(null);
+        }
+        return changed;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static String emailKey(WooBilling billing) {
+        return billing != null ? emailKey(billing.getEmail()) : null;
+    }
+
+    /**
+     * Emails are compared case-insensitively, like the uk_email index does
+     */
+    private static String emailKey(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,22 +1,32 @@
 package nl.embediq.woocommerce.service;
 
-import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.SyncResult;
+import nl.embediq.woocommerce.dto.WooBilling;
 import nl.embediq.woocommerce.dto.WooCustomer;
+import nl.embediq.woocommerce.dto.WooPage;
 import nl.embediq.woocommerce.entity.Customer;
 import nl.embediq.woocommerce.entity.SyncStatus;
 import nl.embediq.woocommerce.enums.SyncStatusEnum;
 import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import nl.embediq.woocommerce.event.CustomerPageSyncedEvent;
 import nl.embediq.woocommerce.repository.CustomerRepository;
 import nl.embediq.woocommerce.repository.SyncStatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -32,12 +42,20 @@ public class CustomerSyncService {
     private SyncStatusRepository syncStatusRepository;
 
     @Autowired
-    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
 
-    @Value("${woocommerce.sync.rate-limit-ms}")
-    private long rateLimitMs;
+    @Autowired
+    private SyncJobRegistry syncJobRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    @Autowired
+    private SyncMetrics syncMetrics;
 
-    @Transactional
     public SyncResult syncCustomers() {
         log.info("Starting customer sync...");
 
@@ -55,38 +73,55 @@ public class CustomerSyncService {
         try {
             LocalDateTime modifiedAfter = syncStatus.getLastSuccessfulSync();
 
-            while (true) {
-                List<WooCustomer> wooCustomers =
-                        wooCommerceClient.getCustomers(page, modifiedAfter);
-
-                if (wooCustomers.isEmpty()) {
-                    break;
-                }
+            // Set only when pages are left over, a stop after the last page completes the sync
+            boolean stopped = false;
+            try (WooPagePrefetcher<WooCustomer> pages = wooCommerceClient.prefetchCustomers(page, modifiedAfter)) {
+                while (pages.hasNext()) {
+                    if (stopRequested()) {
+                        stopped = true;
+                        break;
+                    }
+                    WooPage<WooCustomer> wooPage = pages.next();
+
+                    // Only ids and dates are kept; the records are bound again while processing
+                    List<Long> ids = new ArrayList<>(wooPage.size());
+                    List<String> datesModified = new ArrayList<>(wooPage.size());
+                    for (WooCustomer wooCustomer : wooPage.items()) {
+                        ids.add(wooCustomer.getId());
+                        datesModified.add(wooCustomer.getDateModified());
+                    }
 
-                for (WooCustomer wooCustomer : wooCustomers) {
-                    try {
-                        processCustomer(wooCustomer);
-                        processedCount++;
-                    } catch (Exception e) {
-                        log.error("Failed to process customer {}",
-                                wooCustomer.getId(), e);
-                        failedCount++;
-                        // CRITICAL: Clear session to prevent corruption cascade
-                        entityManager.clear();
+                    PageResult result = processPage(wooPage.items(), ids);
+                    result.failed().forEach(this::enqueueRetry);
+                    syncMetrics.recordPage(SyncType.CUSTOMER, result.processed(), result.failed().size(),
+                            datesModified.stream());
+                    processedCount += result.processed();
+                    failedCount += result.failed().size();
+                    if (result.processed() + result.failed().size() < wooPage.size()) {
+                        // Stopped halfway, the page is done again on resume
+                        stopped = true;
+                        break;
                     }
+
+                    // Checkpoint once the page is committed. A page redone after
+                    // a crash is cheap, its customers are skipped by sync hash.
+                    syncStatus.setLastProcessedPage(wooPage.page());
+                    syncStatus.setTotalRecordsProcessed(processedCount);
+                    syncStatus.setFailedRecords(failedCount);
+                    syncStatus = syncStatusRepository.save(syncStatus);
+
+                    eventPublisher.publishEvent(new CustomerPageSyncedEvent(wooPage.page()));
                 }
+            }
 
-                syncStatus.setLastProcessedPage(page);
-                syncStatus.setTotalRecordsProcessed(processedCount);
-                syncStatus.setFailedRecords(failedCount);
+            if (stopped) {
+                syncStatus.setStatus(SyncStatusEnum.PAUSED);
                 syncStatusRepository.save(syncStatus);
 
-                if (wooCustomers.size() < 100) {
-                    break;
-                }
+                log.info("Customer sync paused after page {}: processed={}, failed={}",
+                        syncStatus.getLastProcessedPage(), processedCount, failedCount);
 
-                page++;
-                Thread.sleep(rateLimitMs);
+                return new SyncResult(false, processedCount, failedCount, "Sync paused");
             }
 
             syncStatus.setStatus(SyncStatusEnum.SUCCESS);
@@ -111,12 +146,119 @@ public class CustomerSyncService {
         }
     }
 
-    @Transactional
+    /**
+     * Outcome of a page; fewer records than the page held when it was stopped
+     */
+    private record PageResult(int processed, List<WooCustomer> failed) {
+    }
+
+    /**
+     * Processes a page in its own transaction, so it is committed before the
+     * next page is started and the persistence context is dropped with it.
+     * When the page cannot be committed its customers are retried in a
+     * transaction each, so one bad record does not cost the whole page.
+     *
+     * @param ids the WooCommerce ids of the customers on the page
+     */
+    private PageResult processPage(Iterable<WooCustomer> wooCustomers, List<Long> ids) {
+        try {
+            return transactionTemplate.execute(status -> processCustomers(wooCustomers, ids));
+        } catch (Exception e) {
+            log.warn("Page of {} customers failed, retrying one by one: {}", ids.size(), e.getMessage());
+        }
+
+        int processed = 0;
+        List<WooCustomer> failed = new ArrayList<>();
+        for (WooCustomer wooCustomer : wooCustomers) {
+            if (stopRequested()) {
+                break;
+            }
+            try {
+                PageResult result = transactionTemplate.execute(status ->
+                        processCustomers(List.of(wooCustomer), List.of(wooCustomer.getId())));
+                processed += result.processed();
+                failed.addAll(result.failed());
+            } catch (Exception e) {
+                log.error("Failed to process customer {}", wooCustomer.getId(), e);
+                failed.add(wooCustomer);
+            }
+        }
+        return new PageResult(processed, failed);
+    }
+
+    /**
+     * Stops before the next record when the job has been asked to stop
+     */
+    private PageResult processCustomers(Iterable<WooCustomer> wooCustomers, List<Long> ids) {
+        Map<Long, Customer> existing = customerRepository.findByWooCommerceIdIn(ids).stream()
+                .collect(Collectors.toMap(Customer::getWooCommerceId, Function.identity(), (a, b) -> a));
+        List<Long> unchangedIds = new ArrayList<>();
+        int processed = 0;
+        List<WooCustomer> failed = new ArrayList<>();
+
+        for (WooCustomer wooCustomer : wooCustomers) {
+            if (stopRequested()) {
+                break;
+            }
+            try {
+                long syncHash = hash(wooCustomer);
+                Customer customer = existing.get(wooCustomer.getId());
+                if (customer != null && isOutdated(wooCustomer, customer)) {
+                    log.debug("Skipping customer {} - stored version is newer", wooCustomer.getId());
+                } else if (customer != null && Objects.equals(customer.getSyncHash(), syncHash)) {
+                    unchangedIds.add(customer.getId());
+                } else {
+                    processCustomer(wooCustomer, customer, syncHash);
+                }
+                processed++;
+            } catch (Exception e) {
+                // A failure that broke the transaction fails the commit,
+                // after which processPage retries the customers one by one
+                log.error("Failed to process customer {}",
+                        wooCustomer.getId(), e);
+                failed.add(wooCustomer);
+            }
+        }
+
+        if (!unchangedIds.isEmpty()) {
+            customerRepository.touchLastSyncedAt(unchangedIds, LocalDateTime.now());
+        }
+        return new PageResult(processed, failed);
+    }
+
+    /**
+     * Leaves a customer that failed to the sync workers, which retry it with
+     * backoff instead of waiting for the next sync
+     */
+    private void enqueueRetry(WooCustomer wooCustomer) {
+        syncWorkQueue.enqueue(SyncType.CUSTOMER, wooCustomer.getId(), SyncWorkAction.UPSERT, null, hash(wooCustomer));
+    }
+
+    private boolean stopRequested() {
+        return syncJobRegistry.isStopRequested(SyncType.CUSTOMER);
+    }
+
+    /**
+     * Creates or updates one customer outside of a sync run, e.g. from a webhook
+     */
     public void processCustomer(WooCustomer wooCustomer) {
-        // First try to find by WooCommerce ID
-        Customer customer = customerRepository.findByWooCommerceId(wooCustomer.getId())
-                .orElse(null);
+        transactionTemplate.executeWithoutResult(status -> {
+            Customer customer = customerRepository.findByWooCommerceId(wooCustomer.getId()).orElse(null);
+            long syncHash = hash(wooCustomer);
+            if (customer != null && isOutdated(wooCustomer, customer)) {
+                log.debug("Skipping customer {} - stored version is newer", wooCustomer.getId());
+            } else if (customer != null && Objects.equals(customer.getSyncHash(), syncHash)) {
+                customerRepository.touchLastSyncedAt(List.of(customer.getId()), LocalDateTime.now());
+            } else {
+                processCustomer(wooCustomer, customer, syncHash);
+            }
+        });
+    }
 
+    /**
+     * @param customer the customer with this WooCommerce id, null if there is none yet
+     */
+    private void processCustomer(WooCustomer wooCustomer, Customer customer, long syncHash) {
         // If not found by WooCommerce ID, try to find by email
         // This handles the case where customer was created via order first (guest checkout)
         if (customer == null && wooCustomer.getEmail() != null && !wooCustomer.getEmail().isEmpty()) {
@@ -154,11 +296,54 @@ public class CustomerSyncService {
             customer.setCountry(wooCustomer.getBilling().getCountry());
         }
 
+        customer.setWooModifiedAt(parseWooDate(wooCustomer.getDateModified()));
         customer.setLastSyncedAt(LocalDateTime.now());
+        customer.setSyncHash(syncHash);
 
         customerRepository.save(customer);
     }
 
+    /**
+     * Whether WooCommerce sent an older version than the one stored, e.g. a
+     * prefetched sync page that arrives after a webhook
+     */
+    private static boolean isOutdated(WooCustomer wooCustomer, Customer customer) {
+        LocalDateTime modifiedAt = parseWooDate(wooCustomer.getDateModified());
+        return modifiedAt != null && customer.getWooModifiedAt() != null
+                && modifiedAt.isBefore(customer.getWooModifiedAt());
+    }
+
+    private static LocalDateTime parseWooDate(String dateString) {
+        if (dateString == null || dateString.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(dateString, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            log.warn("Failed to parse date: {}", dateString);
+            return null;
+        }
+    }
+
+    private static long hash(WooCustomer wooCustomer) {
+        SyncHash hash = SyncHash.create()
+                .add(wooCustomer.getEmail())
+                .add(wooCustomer.getFirstName())
+                .add(wooCustomer.getLastName());
+        WooBilling billing = wooCustomer.getBilling();
+        if (billing != null) {
+            hash.add(billing.getCompany())
+                    .add(billing.getPhone())
+                    .add(billing.getAddress1())
+                    .add(billing.getAddress2())
+                    .add(billing.getCity())
+                    .add(billing.getPostcode())
+                    .add(billing.getState())
+                    .add(billing.getCountry());
+        }
+        return hash.value();
+    }
+
     private SyncStatus getOrCreateSyncStatus(SyncType syncType) {
         return syncStatusRepository.findBySyncType(syncType)
                 .orElseGet(() -> {
@@ -1,22 +1,45 @@
 package nl.embediq.woocommerce.service;
 
 import lombok.extern.slf4j.Slf4j;
-import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.config.CacheConfig;
+import nl.embediq.woocommerce.dto.CustomerOrderTotals;
+import nl.embediq.woocommerce.dto.CustomerStats;
+import nl.embediq.woocommerce.dto.DailyOrderCount;
+import nl.embediq.woocommerce.dto.DashboardCounts;
+import nl.embediq.woocommerce.dto.ExpenseMonthTotal;
+import nl.embediq.woocommerce.dto.OrderStatusCount;
+import nl.embediq.woocommerce.dto.SyncStats;
+import nl.embediq.woocommerce.entity.RevenueDailyRollup;
 import nl.embediq.woocommerce.enums.OrderStatus;
+import nl.embediq.woocommerce.event.CustomerPageSyncedEvent;
+import nl.embediq.woocommerce.event.ExpenseChangedEvent;
+import nl.embediq.woocommerce.event.OrderChangedEvent;
+import nl.embediq.woocommerce.event.ProductPageSyncedEvent;
 import nl.embediq.woocommerce.repository.CustomerRepository;
 import nl.embediq.woocommerce.repository.OrderRepository;
+import nl.embediq.woocommerce.repository.ProductRepository;
+import nl.embediq.woocommerce.repository.RevenueDailyRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Dashboard and statistics data. Everything is cached briefly (see
+ * {@link CacheConfig}) and evicted when the underlying data changes, so
+ * admins polling the dashboard do not each run the same aggregate queries.
+ */
 @Service
 @Slf4j
 public class DashboardService {
@@ -27,12 +50,78 @@ public class DashboardService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
     @Autowired
     private nl.embediq.woocommerce.repository.ExpenseRepository expenseRepository;
 
+    @Autowired
+    private RevenueDailyRollupRepository rollupRepository;
+
+    /**
+     * Order statuses that count as revenue
+     */
+    private static final List<OrderStatus> REVENUE_STATUSES =
+            List.of(OrderStatus.COMPLETED, OrderStatus.PROCESSING, OrderStatus.ON_HOLD);
+
+    private static final String[] MONTH_NAMES = {"Jan", "Feb", "Mrt", "Apr", "Mei", "Jun",
+            "Jul", "Aug", "Sep", "Okt", "Nov", "Dec"};
+
+    /**
+     * Record totals and how many records were synced in the last 24 hours
+     */
+    @Cacheable(CacheConfig.DASHBOARD_COUNTS)
+    public DashboardCounts getDashboardCounts() {
+        LocalDateTime last24Hours = LocalDateTime.now().minusDays(1);
+
+        DashboardCounts counts = new DashboardCounts(
+                orderRepository.count(),
+                customerRepository.count(),
+                productRepository.count(),
+                orderRepository.countSyncedSince(last24Hours),
+                customerRepository.countSyncedSince(last24Hours),
+                productRepository.countSyncedSince(last24Hours));
+
+        log.info("Counting since: {}, Orders last 24h: {}", last24Hours, counts.ordersSyncedToday());
+        return counts;
+    }
+
+    /**
+     * Orders per status, per day for the last week and the top 5 customers
+     */
+    @Cacheable(CacheConfig.ORDER_STATS)
+    public SyncStats getOrderStats() {
+        SyncStats stats = new SyncStats();
+
+        // Orders per status
+        Map<String, Long> ordersByStatus = new HashMap<>();
+        for (OrderStatusCount count : orderRepository.countByStatus()) {
+            ordersByStatus.put(count.status().toString(), count.orderCount());
+        }
+        stats.setOrdersByStatus(ordersByStatus);
+
+        // Orders per dag (laatste 7 dagen)
+        TimeBucketAggregator dailyBuckets = TimeBucketAggregator.lastDays(LocalDate.now(), 7);
+        for (DailyOrderCount count : orderRepository.countPerDaySince(dailyBuckets.getStartDate().atStartOfDay())) {
+            dailyBuckets.add(count.date(), 0, count.orderCount());
+        }
+        stats.setOrdersPerDay(dailyBuckets.getCounts());
+
+        // Top 5 klanten
+        List<CustomerStats> topCustomers = orderRepository.findTopCustomersByOrderCount(PageRequest.of(0, 5)).stream()
+                .map(CustomerOrderTotals::toCustomerStats)
+                .collect(Collectors.toList());
+
+        stats.setTopCustomers(topCustomers);
+
+        return stats;
+    }
+
     /**
      * Get revenue statistics for dashboard with proper filtering
      */
+    @Cacheable(CacheConfig.REVENUE_STATS)
     public Map<String, Object> getRevenueStatistics(Integer year, String groupBy, Integer week) {
         // Validate and set defaults
         if (year == null) {
@@ -44,16 +133,6 @@ public class DashboardService {
 
         log.info("Fetching revenue stats for year: {}, groupBy: {}, week: {}", year, groupBy, week);
 
-        // Get all valid orders (exclude cancelled and failed)
-        List<Order> allOrders = orderRepository.findAll().stream()
-                .filter(o -> o.getCreatedAt() != null)
-                .filter(o -> o.getStatus() == OrderStatus.COMPLETED ||
-                           o.getStatus() == OrderStatus.PROCESSING ||
-                           o.getStatus() == OrderStatus.ON_HOLD)
-                .collect(Collectors.toList());
-
-        log.info("Total valid orders in system: {}", allOrders.size());
-
         // Determine date range based on groupBy
         LocalDateTime startDate;
         LocalDateTime endDate;
@@ -93,31 +172,30 @@ public class DashboardService {
                 break;
         }
 
-        // Filter orders by date range
-        List<Order> filteredOrders = allOrders.stream()
-                .filter(o -> !o.getCreatedAt().isBefore(startDate) && !o.getCreatedAt().isAfter(endDate))
-                .collect(Collectors.toList());
+        // Daily rollups of valid orders (cancelled and failed are excluded)
+        List<RevenueDailyRollup> rollups = rollupRepository.findByRollupDateBetweenAndStatusIn(
+                startDate.toLocalDate(), endDate.toLocalDate(), REVENUE_STATUSES);
 
-        log.info("Filtered orders for date range {}-{}: {}", startDate, endDate, filteredOrders.size());
+        log.info("Loaded {} daily rollups for date range {}-{}", rollups.size(), startDate, endDate);
 
-        // Calculate total revenue
-        BigDecimal totalRevenue = filteredOrders.stream()
-                .map(Order::getTotal)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Calculate total revenue and order count
+        long totalRevenueCents = 0;
+        long orderCount = 0;
+        for (RevenueDailyRollup rollup : rollups) {
+            totalRevenueCents += TimeBucketAggregator.toCents(rollup.getRevenue());
+            orderCount += rollup.getOrderCount();
+        }
+        BigDecimal totalRevenue = BigDecimal.valueOf(totalRevenueCents, 2);
 
         log.info("Total revenue calculated: {}", totalRevenue);
 
-        // Calculate order count
-        long orderCount = filteredOrders.size();
-
         // Calculate average order value
         BigDecimal avgOrderValue = orderCount > 0
                 ? totalRevenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
 
         // Group revenue by period
-        Map<String, BigDecimal> revenueByPeriod = groupRevenueByPeriod(filteredOrders, groupBy, year);
+        Map<String, BigDecimal> revenueByPeriod = groupRevenueByPeriod(rollups, groupBy, year);
 
         // Group expenses by period
         Map<String, BigDecimal> expensesByPeriod = groupExpensesByPeriod(groupBy, year, startDate, endDate);
@@ -135,11 +213,7 @@ public class DashboardService {
         }
 
         // Get available years
-        List<Integer> availableYears = allOrders.stream()
-                .map(o -> o.getCreatedAt().getYear())
-                .distinct()
-                .sorted(Comparator.reverseOrder())
-                .collect(Collectors.toList());
+        List<Integer> availableYears = rollupRepository.findYearsWithOrders(REVENUE_STATUSES);
 
         // Get available weeks for the selected year
         List<Integer> availableWeeks = null;
@@ -171,182 +245,68 @@ public class DashboardService {
     /**
      * Group revenue by time period
      */
-    private Map<String, BigDecimal> groupRevenueByPeriod(List<Order> orders, String groupBy, Integer year) {
-        Map<String, BigDecimal> result = new LinkedHashMap<>();
-
-        switch (groupBy.toLowerCase()) {
-            case "day":
-                // Last 30 days
-                for (int i = 29; i >= 0; i--) {
-                    LocalDate date = LocalDate.now().minusDays(i);
-                    LocalDateTime dayStart = date.atStartOfDay();
-                    LocalDateTime dayEnd = date.atTime(23, 59, 59);
-
-                    BigDecimal dayRevenue = orders.stream()
-                            .filter(o -> !o.getCreatedAt().isBefore(dayStart) && !o.getCreatedAt().isAfter(dayEnd))
-                            .map(Order::getTotal)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put(date.toString(), dayRevenue);
-                }
-                break;
-
-            case "week":
-                // All 52 weeks of the year
-                WeekFields weekFields = WeekFields.of(Locale.forLanguageTag("nl"));
-                LocalDate firstDayOfYear = LocalDate.of(year, 1, 1);
-                LocalDate lastDayOfYear = LocalDate.of(year, 12, 31);
-                int weeksInYear = (int) ChronoUnit.WEEKS.between(firstDayOfYear, lastDayOfYear) + 1;
-
-                for (int weekNum = 1; weekNum <= Math.min(weeksInYear, 53); weekNum++) {
-                    LocalDate weekStart = firstDayOfYear.plusWeeks(weekNum - 1);
-                    LocalDate weekEnd = weekStart.plusDays(6);
-
-                    // Make sure we don't go past the year
-                    if (weekEnd.getYear() > year) {
-                        weekEnd = lastDayOfYear;
-                    }
-
-                    LocalDateTime weekStartTime = weekStart.atStartOfDay();
-                    LocalDateTime weekEndTime = weekEnd.atTime(23, 59, 59);
-
-                    final int currentWeek = weekNum;
-                    BigDecimal weekRevenue = orders.stream()
-                            .filter(o -> !o.getCreatedAt().isBefore(weekStartTime) && !o.getCreatedAt().isAfter(weekEndTime))
-                            .map(Order::getTotal)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put("Week " + weekNum, weekRevenue);
-                }
-                break;
-
-            case "month":
-                // All 12 months of the year
-                String[] monthNames = {"Jan", "Feb", "Mrt", "Apr", "Mei", "Jun",
-                                      "Jul", "Aug", "Sep", "Okt", "Nov", "Dec"};
-
-                for (int month = 1; month <= 12; month++) {
-                    LocalDate monthDate = LocalDate.of(year, month, 1);
-                    LocalDateTime monthStart = monthDate.atStartOfDay();
-                    LocalDateTime monthEnd = monthDate.withDayOfMonth(monthDate.lengthOfMonth()).atTime(23, 59, 59);
-
-                    BigDecimal monthRevenue = orders.stream()
-                            .filter(o -> !o.getCreatedAt().isBefore(monthStart) && !o.getCreatedAt().isAfter(monthEnd))
-                            .map(Order::getTotal)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put(monthNames[month - 1], monthRevenue);
-                }
-                break;
+    private Map<String, BigDecimal> groupRevenueByPeriod(List<RevenueDailyRollup> rollups, String groupBy, Integer year) {
+        TimeBucketAggregator buckets = createBuckets(groupBy, year);
+        if (buckets == null) {
+            return new LinkedHashMap<>();
+        }
 
-            case "year":
-                // Last 5 years
-                int currentYear = LocalDate.now().getYear();
-                for (int i = 4; i >= 0; i--) {
-                    int y = currentYear - i;
-                    LocalDateTime yearStart = LocalDateTime.of(y, 1, 1, 0, 0);
-                    LocalDateTime yearEnd = LocalDateTime.of(y, 12, 31, 23, 59, 59);
-
-                    BigDecimal yearRevenue = orders.stream()
-                            .filter(o -> !o.getCreatedAt().isBefore(yearStart) && !o.getCreatedAt().isAfter(yearEnd))
-                            .map(Order::getTotal)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put(String.valueOf(y), yearRevenue);
-                }
-                break;
+        for (RevenueDailyRollup rollup : rollups) {
+            buckets.add(rollup.getRollupDate(),
+                    TimeBucketAggregator.toCents(rollup.getRevenue()), rollup.getOrderCount());
         }
 
-        return result;
+        return buckets.getAmounts();
     }
 
     /**
      * Group expenses by time period
      */
     private Map<String, BigDecimal> groupExpensesByPeriod(String groupBy, Integer year, LocalDateTime startDate, LocalDateTime endDate) {
-        Map<String, BigDecimal> result = new LinkedHashMap<>();
-
-        // Get all expenses in date range
-        List<nl.embediq.woocommerce.entity.Expense> expenses = expenseRepository.findAll().stream()
-                .filter(e -> e.getExpenseDate() != null)
-                .filter(e -> !e.getExpenseDate().isBefore(startDate) && !e.getExpenseDate().isAfter(endDate))
-                .collect(Collectors.toList());
-
-        log.info("Found {} expenses in date range {}-{}", expenses.size(), startDate, endDate);
-
-        switch (groupBy.toLowerCase()) {
-            case "week":
-                // All 52 weeks of the year
-                LocalDate firstDayOfYear = LocalDate.of(year, 1, 1);
-                LocalDate lastDayOfYear = LocalDate.of(year, 12, 31);
-                int weeksInYear = (int) ChronoUnit.WEEKS.between(firstDayOfYear, lastDayOfYear) + 1;
+        // The day view shows revenue only
+        TimeBucketAggregator buckets = "day".equalsIgnoreCase(groupBy) ? null : createBuckets(groupBy, year);
+        if (buckets == null) {
+            return new LinkedHashMap<>();
+        }
 
-                for (int weekNum = 1; weekNum <= Math.min(weeksInYear, 53); weekNum++) {
-                    LocalDate weekStart = firstDayOfYear.plusWeeks(weekNum - 1);
-                    LocalDate weekEnd = weekStart.plusDays(6);
+        // The year view always shows the last five full years
+        if ("year".equalsIgnoreCase(groupBy)) {
+            startDate = buckets.getStartDate().atStartOfDay();
+            endDate = buckets.getEndDate().atTime(23, 59, 59);
+        }
 
-                    if (weekEnd.getYear() > year) {
-                        weekEnd = lastDayOfYear;
-                    }
+        List<nl.embediq.woocommerce.entity.Expense> expenses =
+                expenseRepository.findByExpenseDateBetween(startDate, endDate);
 
-                    LocalDateTime weekStartTime = weekStart.atStartOfDay();
-                    LocalDateTime weekEndTime = weekEnd.atTime(23, 59, 59);
+        log.info("Found {} expenses in date range {}-{}", expenses.size(), startDate, endDate);
 
-                    BigDecimal weekExpense = expenses.stream()
-                            .filter(e -> !e.getExpenseDate().isBefore(weekStartTime) && !e.getExpenseDate().isAfter(weekEndTime))
-                            .map(nl.embediq.woocommerce.entity.Expense::getAmount)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        for (nl.embediq.woocommerce.entity.Expense expense : expenses) {
+            buckets.add(expense.getExpenseDate().toLocalDate(), expense.getAmount());
+        }
 
-                    result.put("Week " + weekNum, weekExpense);
-                }
-                break;
+        return buckets.getAmounts();
+    }
 
+    /**
+     * Buckets shown on the dashboard for each grouping
+     */
+    private TimeBucketAggregator createBuckets(String groupBy, int year) {
+        switch (groupBy.toLowerCase()) {
+            case "day":
+                // Last 30 days
+                return TimeBucketAggregator.lastDays(LocalDate.now(), 30);
+            case "week":
+                // All weeks of the year
+                return TimeBucketAggregator.weeksOfYear(year);
             case "month":
                 // All 12 months of the year
-                String[] monthNames = {"Jan", "Feb", "Mrt", "Apr", "Mei", "Jun",
-                        "Jul", "Aug", "Sep", "Okt", "Nov", "Dec"};
-
-                for (int month = 1; month <= 12; month++) {
-                    LocalDate monthDate = LocalDate.of(year, month, 1);
-                    LocalDateTime monthStart = monthDate.atStartOfDay();
-                    LocalDateTime monthEnd = monthDate.withDayOfMonth(monthDate.lengthOfMonth()).atTime(23, 59, 59);
-
-                    BigDecimal monthExpense = expenses.stream()
-                            .filter(e -> !e.getExpenseDate().isBefore(monthStart) && !e.getExpenseDate().isAfter(monthEnd))
-                            .map(nl.embediq.woocommerce.entity.Expense::getAmount)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put(monthNames[month - 1], monthExpense);
-                }
-                break;
-
+                return TimeBucketAggregator.monthsOfYear(year, MONTH_NAMES);
             case "year":
                 // Last 5 years
-                int currentYear = LocalDate.now().getYear();
-                for (int i = 4; i >= 0; i--) {
-                    int y = currentYear - i;
-                    LocalDateTime yearStart = LocalDateTime.of(y, 1, 1, 0, 0);
-                    LocalDateTime yearEnd = LocalDateTime.of(y, 12, 31, 23, 59, 59);
-
-                    BigDecimal yearExpense = expenseRepository.findAll().stream()
-                            .filter(e -> e.getExpenseDate() != null)
-                            .filter(e -> !e.getExpenseDate().isBefore(yearStart) && !e.getExpenseDate().isAfter(yearEnd))
-                            .map(nl.embediq.woocommerce.entity.Expense::getAmount)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    result.put(String.valueOf(y), yearExpense);
-                }
-                break;
+                return TimeBucketAggregator.years(LocalDate.now().getYear() - 4, 5);
+            default:
+                return null;
         }
-
-        return result;
     }
 
     /**
@@ -366,46 +326,91 @@ public class DashboardService {
     }
 
     /**
-     * Get top customers with proper order filtering
+     * Get top customers by amount spent on valid orders. Cached briefly and
+     * evicted whenever an order changes.
      */
+    @Cacheable(cacheNames = CacheConfig.TOP_CUSTOMERS, key = "#limit")
     public List<Map<String, Object>> getTopCustomers(int limit) {
         log.info("Fetching top {} customers", limit);
 
-        return customerRepository.findAll().stream()
-                .map(customer -> {
-                    // Get all valid orders for this customer
-                    List<Order> validOrders = customer.getOrders().stream()
-                            .filter(o -> o.getStatus() == OrderStatus.COMPLETED ||
-                                       o.getStatus() == OrderStatus.PROCESSING ||
-                                       o.getStatus() == OrderStatus.ON_HOLD)
-                            .collect(Collectors.toList());
-
-                    if (validOrders.isEmpty()) {
-                        return null;
-                    }
-
-                    // Calculate total spent
-                    BigDecimal totalSpent = validOrders.stream()
-                            .map(Order::getTotal)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+        return orderRepository.findTopCustomersBySpend(REVENUE_STATUSES, PageRequest.of(0, limit)).stream()
+                .map(totals -> {
                     Map<String, Object> customerData = new HashMap<>();
-                    customerData.put("name", customer.getFirstName() + " " + customer.getLastName());
-                    customerData.put("email", customer.getEmail());
-                    customerData.put("orderCount", validOrders.size());
-                    customerData.put("totalSpent", totalSpent);
-
+                    customerData.put("name", totals.firstName() + " " + totals.lastName());
+                    customerData.put("email", totals.email());
+                    customerData.put("orderCount", totals.orderCount());
+                    customerData.put("totalSpent", totals.totalSpent() != null ? totals.totalSpent() : BigDecimal.ZERO);
                     return customerData;
                 })
-                .filter(Objects::nonNull)
-                .sorted((c1, c2) -> {
-                    BigDecimal spent1 = (BigDecimal) c1.get("totalSpent");
-                    BigDecimal spent2 = (BigDecimal) c2.get("totalSpent");
-                    return spent2.compareTo(spent1);
-                })
-                .limit(limit)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Expense totals, per category and for the last 6 months
+     */
+    @Cacheable(CacheConfig.EXPENSE_STATS)
+    public Map<String, Object> getExpenseStatistics(LocalDateTime dateFrom, LocalDateTime dateTo) {
+        // Total, per category and monthly expenses (last 6 months) from
+        // totals the database groups per category and month
+        long totalCents = 0;
+        long expenseCount = 0;
+        Map<String, Long> categoryCents = new HashMap<>();
+        TimeBucketAggregator monthlyBuckets = TimeBucketAggregator.lastMonths(LocalDate.now(), 6);
+
+        for (ExpenseMonthTotal monthTotal : expenseRepository.sumPerCategoryAndMonth(dateFrom, dateTo)) {
+            long cents = TimeBucketAggregator.toCents(monthTotal.amount());
+            totalCents += cents;
+            expenseCount += monthTotal.expenseCount();
+            categoryCents.merge(monthTotal.category(), cents, Long::sum);
+            monthlyBuckets.add(LocalDate.of(monthTotal.year(), monthTotal.month(), 1),
+                    cents, monthTotal.expenseCount());
+        }
+
+        BigDecimal totalExpenses = BigDecimal.valueOf(totalCents, 2);
+
+        Map<String, BigDecimal> byCategory = new HashMap<>();
+        categoryCents.forEach((category, cents) -> byCategory.put(category, BigDecimal.valueOf(cents, 2)));
+
+        Map<String, BigDecimal> monthlyExpenses = monthlyBuckets.getAmounts();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalExpenses", totalExpenses);
+        stats.put("expenseCount", expenseCount);
+        stats.put("byCategory", byCategory);
+        stats.put("monthlyExpenses", monthlyExpenses);
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.TOP_CUSTOMERS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.DASHBOARD_COUNTS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_STATS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.REVENUE_STATS, allEntries = true)
+    })
+    public void onOrderChanged(OrderChangedEvent event) {
+        log.debug("Order {} changed, order caches evicted", event.orderId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.REVENUE_STATS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.EXPENSE_STATS, allEntries = true)
+    })
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        log.debug("Expense {} changed, expense caches evicted", event.expenseId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = CacheConfig.DASHBOARD_COUNTS, allEntries = true)
+    public void onCustomerPageSynced(CustomerPageSyncedEvent event) {
+        log.debug("Customer page {} synced, dashboard counts evicted", event.page());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = CacheConfig.DASHBOARD_COUNTS, allEntries = true)
+    public void onProductPageSynced(ProductPageSyncedEvent event) {
+        log.debug("Product page {} synced, dashboard counts evicted", event.page());
+    }
 }
 
@@ -0,0 +1,213 @@
+package nl.embediq.woocommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.OrderItemMetadataDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Exports orders, customers and expenses for the bookkeeping as CSV or XLSX.
+ *
+ * <p>Each export is one query whose rows are written out as they arrive
+ * from the database, so the first bytes go out right away and memory use
+ * does not depend on the number of rows. The default fetch size of
+ * Integer.MIN_VALUE makes MySQL Connector/J stream the result instead of
+ * reading it completely; other drivers need a positive export.fetch-size.</p>
+ */
+@Service
+@Slf4j
+public class DataExportService {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final String ORDERS_SQL =
+            "SELECT o.order_number, o.created_at, o.status, o.subtotal, o.discount_amount, o.total, " +
+            "c.first_name, c.last_name, c.email, c.company_name, c.city, c.country, " +
+            "i.product_name, i.quantity, i.total AS item_total, i.metadata " +
+            "FROM orders o " +
+            "LEFT JOIN customers c ON c.id = o.customer_id " +
+            "LEFT JOIN order_items i ON i.order_id = o.id ";
+
+    private static final String CUSTOMERS_SQL =
+            "SELECT woo_commerce_id, first_name, last_name, email, company_name, phone, address, address_2, " +
+            "postal_code, city, state, country, discount, created_at " +
+            "FROM customers ";
+
+    private static final String EXPENSES_SQL =
+            "SELECT expense_date, description, category, supplier, amount, notes " +
+            "FROM expenses ";
+
+    @Value("${export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int fetchSize;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    @PostConstruct
+    void init() {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * One row per order item; orders without items get a single row
+     */
+    public void writeOrders(TableWriter out, String status, LocalDateTime dateFrom, LocalDateTime dateTo)
+            throws IOException {
+        out.row("Ordernummer", "Datum", "Status", "Voornaam", "Achternaam", "E-mail", "Bedrijf", "Plaats",
+                "Land", "Subtotaal", "Korting", "Totaal", "Product", "Aantal", "Regeltotaal", "Opties");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        if (status != null && !status.isEmpty()) {
+            conditions.add("o.status = :status");
+            params.addValue("status", status.toUpperCase());
+        }
+        addDateRange(conditions, params, "o.created_at", dateFrom, dateTo);
+
+        query(ORDERS_SQL + where(conditions) + "ORDER BY o.created_at, o.id, i.id", params, rs -> out.row(
+                rs.getString("order_number"),
+                format(rs.getTimestamp("created_at")),
+                rs.getString("status"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("email"),
+                rs.getString("company_name"),
+                rs.getString("city"),
+                rs.getString("country"),
+                rs.getBigDecimal("subtotal"),
+                rs.getBigDecimal("discount_amount"),
+                rs.getBigDecimal("total"),
+                rs.getString("product_name"),
+                rs.getObject("quantity", Integer.class),
+                rs.getBigDecimal("item_total"),
+                options(rs.getString("metadata"))));
+    }
+
+    public void writeCustomers(TableWriter out, LocalDateTime dateFrom, LocalDateTime dateTo) throws IOException {
+        out.row("WooCommerce-id", "Voornaam", "Achternaam", "E-mail", "Bedrijf", "Telefoon", "Adres", "Adres 2",
+                "Postcode", "Plaats", "Provincie", "Land", "Korting", "Aangemaakt");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        addDateRange(conditions, params, "created_at", dateFrom, dateTo);
+
+        query(CUSTOMERS_SQL + where(conditions) + "ORDER BY id", params, rs -> out.row(
+                rs.getObject("woo_commerce_id", Long.class),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("email"),
+                rs.getString("company_name"),
+                rs.getString("phone"),
+                rs.getString("address"),
+                rs.getString("address_2"),
+                rs.getString("postal_code"),
+                rs.getString("city"),
+                rs.getString("state"),
+                rs.getString("country"),
+                rs.getBigDecimal("discount"),
+                format(rs.getTimestamp("created_at"))));
+    }
+
+    public void writeExpenses(TableWriter out, String category, LocalDateTime dateFrom, LocalDateTime dateTo)
+            throws IOException {
+        out.row("Datum", "Omschrijving", "Categorie", "Leverancier", "Bedrag", "Notities");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        if (category != null && !category.isEmpty()) {
+            conditions.add("category = :category");
+            params.addValue("category", category);
+        }
+        addDateRange(conditions, params, "expense_date", dateFrom, dateTo);
+
+        query(EXPENSES_SQL + where(conditions) + "ORDER BY expense_date, id", params, rs -> out.row(
+                format(rs.getTimestamp("expense_date")),
+                rs.getString("description"),
+                rs.getString("category"),
+                rs.getString("supplier"),
+                rs.getBigDecimal("amount"),
+                rs.getString("notes")));
+    }
+
+    private void query(String sql, MapSqlParameterSource params, RowWriter rowWriter) throws IOException {
+        try {
+            jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; stops reading the rest of the result
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The item options as "Kleur: Rood; Tekst: Jan"
+     */
+    private String options(String metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            List<OrderItemMetadataDTO> entries = objectMapper.readValue(metadata,
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, OrderItemMetadataDTO.class));
+            return entries.stream()
+                    .map(entry -> entry.getDisplayKey() + ": " + entry.getDisplayValue())
+                    .collect(Collectors.joining("; "));
+        } catch (IOException e) {
+            log.warn("Failed to parse order item metadata for export: {}", e.getMessage());
+            return metadata;
+        }
+    }
+
+    private static void addDateRange(List<String> conditions, MapSqlParameterSource params, String column,
+                                     LocalDateTime dateFrom, LocalDateTime dateTo) {
+        if (dateFrom != null) {
+            conditions.add(column + " >= :dateFrom");
+            params.addValue("dateFrom", Timestamp.valueOf(dateFrom));
+        }
+        if (dateTo != null) {
+            conditions.add(column + " <= :dateTo");
+            params.addValue("dateTo", Timestamp.valueOf(dateTo));
+        }
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    private static String format(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().format(DATE_TIME) : null;
+    }
+}
@@ -0,0 +1,184 @@
+package nl.embediq.woocommerce.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.utils.PdfMerger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.InvoiceExportRequest;
+import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports many invoices at once, as a ZIP or as one merged PDF.
+ *
+ * <p>Invoices are rendered through the {@link InvoiceStore} on a fixed pool
+ * of invoice.export-threads threads, at most a few ahead of the one being
+ * written. Every invoice is copied to the output from its file, so memory
+ * use does not grow with the size of the export.</p>
+ */
+@Service
+@Slf4j
+public class InvoiceExportService {
+
+    /**
+     * 0 uses one thread per processor, rendering is CPU bound
+     */
+    @Value("${invoice.export-threads:0}")
+    private int threadCount;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InvoiceStore invoiceStore;
+
+    private ExecutorService executor;
+
+    /**
+     * Invoices rendered or rendering ahead of the output
+     */
+    private int window;
+
+    private record Invoice(Long orderId, String fileName, Path file) {
+    }
+
+    @FunctionalInterface
+    private interface InvoiceWriter {
+        void write(Invoice invoice) throws IOException;
+    }
+
+    @PostConstruct
+    void start() {
+        int threads = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("invoice-render-", 1).daemon().factory());
+        window = threads * 2;
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The orders to export, in order date order for a range
+     *
+     * @throws IllegalArgumentException when neither ids nor a complete range are given
+     */
+    public List<Long> orderIds(InvoiceExportRequest request) {
+        if (request.getOrderIds() != null && !request.getOrderIds().isEmpty()) {
+            return request.getOrderIds();
+        }
+        if (request.getFrom() == null || request.getTo() == null) {
+            throw new IllegalArgumentException("Geef orderIds of een periode (from en to) op");
+        }
+        return orderRepository.findIdsCreatedBetween(
+                request.getFrom().atStartOfDay(), request.getTo().plusDays(1).atStartOfDay());
+    }
+
+    public void writeZip(List<Long> orderIds, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PDFs are compressed already
+        zip.setLevel(Deflater.BEST_SPEED);
+        Set<String> names = new HashSet<>();
+        render(orderIds, invoice -> {
+            // Order numbers are not unique, e.g. manually created next to synced orders
+            String name = names.add(invoice.fileName())
+                    ? invoice.fileName()
+                    : invoice.fileName().replace(".pdf", "-" + invoice.orderId() + ".pdf");
+            zip.putNextEntry(new ZipEntry(name));
+            Files.copy(invoice.file(), zip);
+            zip.closeEntry();
+        });
+        zip.finish();
+    }
+
+    public void writeMergedPdf(List<Long> orderIds, OutputStream out) throws IOException {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument merged = new PdfDocument(writer);
+        PdfMerger merger = new PdfMerger(merged);
+
+        render(orderIds, invoice -> {
+            try (PdfDocument source = new PdfDocument(new PdfReader(invoice.file().toFile()))) {
+                int firstPage = merged.getNumberOfPages() + 1;
+                merger.merge(source, 1, source.getNumberOfPages());
+                // Written out right away, only the current invoice stays in memory
+                for (int page = firstPage; page <= merged.getNumberOfPages(); page++) {
+                    merged.getPage(page).flush(true);
+                }
+            }
+        });
+
+        if (merged.getNumberOfPages() == 0) {
+            // None of the orders exists anymore; a PDF needs at least one page
+            merged.addNewPage();
+        }
+        merged.close();
+    }
+
+    /**
+     * Renders the invoices in parallel and hands them to the writer in the
+     * order of orderIds. Orders that no longer exist are skipped.
+     */
+    private void render(List<Long> orderIds, InvoiceWriter writer) throws IOException {
+        Deque<Future<Invoice>> inFlight = new ArrayDeque<>();
+        Iterator<Long> remaining = orderIds.iterator();
+        try {
+            while (remaining.hasNext() || !inFlight.isEmpty()) {
+                while (remaining.hasNext() && inFlight.size() < window) {
+                    Long orderId = remaining.next();
+                    inFlight.add(executor.submit(() -> renderOne(orderId)));
+                }
+
+                Invoice invoice = inFlight.poll().get();
+                if (invoice != null) {
+                    writer.write(invoice);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to render invoice", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Invoice export interrupted");
+        } finally {
+            // Stops the rendering ahead when the client went away
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Invoice renderOne(Long orderId) {
+        // Customer and items are fetched along, rendering needs no open session
+        List<Order> orders = orderRepository.findWithDetailsByIdIn(List.of(orderId));
+        if (orders.isEmpty()) {
+            log.warn("Skipping invoice of order {}, it no longer exists", orderId);
+            return null;
+        }
+        Order order = orders.get(0);
+        return new Invoice(order.getId(), "order-" + order.getOrderNumber() + ".pdf", invoiceStore.get(order));
+    }
+}
@@ -0,0 +1,96 @@
+package nl.embediq.woocommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.entity.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Generated invoices on disk, one file per order named after the
+ * {@link PdfGeneratorService#invoiceHash invoice hash}. A changed order gets a
+ * new hash and so a new file; the outdated file is removed once the new
+ * one is in place, or when the order is changed through the admin.
+ *
+ * <p>The hash doubles as ETag, so a client that already has the current
+ * invoice gets a 304 without anything being rendered or read.</p>
+ */
+@Service
+@Slf4j
+public class InvoiceStore {
+
+    @Value("${invoice.cache-dir:${java.io.tmpdir}/invoices}")
+    private String cacheDir;
+
+    @Autowired
+    private PdfGeneratorService pdfGeneratorService;
+
+    private Path directory;
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Files.createDirectories(Path.of(cacheDir));
+    }
+
+    public String etag(Order order) {
+        return "\"" + Long.toHexString(pdfGeneratorService.invoiceHash(order)) + "\"";
+    }
+
+    /**
+     * The invoice of the order, rendered first when there is no current one
+     */
+    public Path get(Order order) {
+        long hash = pdfGeneratorService.invoiceHash(order);
+        Path file = directory.resolve(prefix(order.getId()) + Long.toHexString(hash) + ".pdf");
+        if (Files.exists(file)) {
+            return file;
+        }
+
+        byte[] pdf = pdfGeneratorService.generateOrderPdf(order);
+        try {
+            // Written aside and moved in, a concurrent download never sees half a file
+            Path temp = Files.createTempFile(directory, prefix(order.getId()), ".tmp");
+            Files.write(temp, pdf);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store invoice of order " + order.getOrderNumber(), e);
+        }
+        // Only outdated files; the current one may be read by a concurrent download
+        evict(order.getId(), file);
+        return file;
+    }
+
+    /**
+     * Removes the stored invoice of an order that changed or was deleted
+     */
+    public void evict(Long orderId) {
+        evict(orderId, null);
+    }
+
+    /**
+     * @param keep the file to leave in place, null to remove all
+     */
+    private void evict(Long orderId, Path keep) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix(orderId) + "*.pdf")) {
+            for (Path file : files) {
+                if (!file.equals(keep)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot remove stored invoice of order {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    private static String prefix(Long orderId) {
+        return "order-" + orderId + "-";
+    }
+}
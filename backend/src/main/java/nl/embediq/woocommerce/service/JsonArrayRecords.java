@@ -0,0 +1,75 @@
+package nl.embediq.woocommerce.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import nl.embediq.woocommerce.exception.WooCommerceApiException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The records of a JSON array response, bound one at a time while iterating.
+ *
+ * <p>Only the raw response bytes are kept. Every iteration streams over them
+ * with a {@link JsonParser} and builds a single record per {@code next()}, so
+ * a record can be collected as soon as it has been processed instead of the
+ * whole page living in memory as objects.</p>
+ */
+public final class JsonArrayRecords<T> implements Iterable<T> {
+
+    private final ObjectReader reader;
+    private final byte[] json;
+    private final int size;
+
+    private JsonArrayRecords(ObjectReader reader, byte[] json, int size) {
+        this.reader = reader;
+        this.json = json;
+        this.size = size;
+    }
+
+    /**
+     * Checks that the body is a JSON array and counts its elements without
+     * binding them
+     */
+    public static <T> JsonArrayRecords<T> of(ObjectReader reader, byte[] json) {
+        if (json == null || json.length == 0) {
+            return new JsonArrayRecords<>(reader, new byte[0], 0);
+        }
+
+        try (JsonParser parser = reader.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new WooCommerceApiException("Expected a JSON array but got " + parser.currentToken());
+            }
+            int size = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+                size++;
+            }
+            return new JsonArrayRecords<>(reader, json, size);
+        } catch (IOException e) {
+            throw new WooCommerceApiException("Invalid JSON response", e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (size == 0) {
+            return Collections.emptyIterator();
+        }
+        try {
+            return reader.readValues(json);
+        } catch (IOException e) {
+            throw new WooCommerceApiException("Invalid JSON response", e);
+        }
+    }
+}
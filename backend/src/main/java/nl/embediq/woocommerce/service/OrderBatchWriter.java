@@ -0,0 +1,344 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.enums.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a page of synced orders with a fixed number of statements: one
+ * lookup of the existing rows, one batched upsert on uk_woo_commerce_id, one
+ * delete and one batched insert for the line items, and the rollup deltas.
+ * Orders whose {@link SyncHash} is unchanged are not written at all; only
+ * their last_synced_at is bumped, in one statement for the page.
+ *
+ * <p>Webhooks, the sync and the work queue write the same orders, and a
+ * version fetched earlier can arrive later. An order whose WooCommerce
+ * date_modified (stored as updated_at) is older than the stored one is
+ * skipped, and the upsert keeps the stored row in that case as well.</p>
+ *
+ * <p>Inside a running transaction the page is written under a savepoint, so a
+ * failing page is undone without rolling back the caller's transaction and
+ * the orders can be retried one by one. Without one it gets its own.</p>
+ */
+@Service
+@Slf4j
+public class OrderBatchWriter {
+
+    private static final String UPSERT_ORDER =
+            "INSERT INTO orders (woo_commerce_id, order_number, total, status, customer_id, " +
+            "created_at, updated_at, last_synced_at, sync_hash, items_hash, discount_percentage, discount_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0) " +
+            "ON DUPLICATE KEY UPDATE " + unlessOutdated("order_number", "total", "status", "customer_id",
+                    "created_at", "last_synced_at", "sync_hash", "items_hash", "updated_at");
+
+    private static final String INSERT_ITEM =
+            "INSERT INTO order_items (order_id, product_id, product_name, quantity, total, metadata) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    /**
+     * A WooCommerce order mapped to column values
+     *
+     * @param items the line items; null or empty leaves the stored items alone
+     */
+    public record OrderRow(Long wooCommerceId, String orderNumber, BigDecimal total, OrderStatus status,
+                           Long customerId, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           List<ItemRow> items) {
+
+        public OrderRow withCustomerId(Long customerId) {
+            return new OrderRow(wooCommerceId, orderNumber, total, status, customerId, createdAt, updatedAt, items);
+        }
+    }
+
+    public record ItemRow(Long productId, String productName, Integer quantity, BigDecimal total,
+                          String metadata) {
+    }
+
+    private record ExistingOrder(Long id, RevenueRollupService.Snapshot snapshot, LocalDateTime updatedAt,
+                                 Long syncHash, Long itemsHash) {
+    }
+
+    private record HashedRow(OrderRow row, long syncHash, long itemsHash) {
+    }
+
+    public void writePage(List<OrderRow> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionTemplate.executeWithoutResult(status -> write(page));
+            return;
+        }
+
+        // Same connection as the surrounding JPA transaction
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Savepoint savepoint;
+        try {
+            savepoint = connection.setSavepoint();
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not create savepoint", e);
+        }
+
+        try {
+            write(page);
+        } catch (RuntimeException e) {
+            try {
+                connection.rollback(savepoint);
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            log.debug("Could not release savepoint: {}", e.getMessage());
+        }
+    }
+
+    private void write(List<OrderRow> page) {
+        // An order that appears twice (modified while paging) is written once, latest wins
+        Map<Long, OrderRow> byWooId = new LinkedHashMap<>();
+        page.forEach(row -> byWooId.put(row.wooCommerceId(), row));
+        List<Long> wooIds = new ArrayList<>(byWooId.keySet());
+        Map<Long, ExistingOrder> existing = findExisting(wooIds);
+
+        List<HashedRow> changed = new ArrayList<>();
+        List<Long> unchangedIds = new ArrayList<>();
+        int outdated = 0;
+        for (OrderRow row : byWooId.values()) {
+            HashedRow hashed = new HashedRow(row, hash(row), hashItems(row.items()));
+            ExistingOrder before = existing.get(row.wooCommerceId());
+            if (before != null && isOutdated(row.updatedAt(), before.updatedAt())) {
+                log.debug("Skipping order {} - stored version is newer", row.wooCommerceId());
+                outdated++;
+            } else if (before != null && Objects.equals(before.syncHash(), hashed.syncHash())
+                    && Objects.equals(before.itemsHash(), hashed.itemsHash())) {
+                unchangedIds.add(before.id());
+            } else {
+                changed.add(hashed);
+            }
+        }
+
+        touch(unchangedIds);
+        if (changed.isEmpty()) {
+            log.debug("All {} orders unchanged or outdated", unchangedIds.size() + outdated);
+            return;
+        }
+
+        upsertOrders(changed);
+
+        Map<Long, Long> orderIds = new HashMap<>();
+        existing.forEach((wooId, order) -> orderIds.put(wooId, order.id()));
+        if (orderIds.size() < wooIds.size()) {
+            List<Long> newWooIds = wooIds.stream()
+                    .filter(wooId -> !orderIds.containsKey(wooId))
+                    .collect(Collectors.toList());
+            orderIds.putAll(findIds(newWooIds));
+        }
+
+        replaceItems(changed, orderIds, existing);
+
+        List<RevenueRollupService.Change> changes = new ArrayList<>(changed.size());
+        for (HashedRow hashed : changed) {
+            OrderRow row = hashed.row();
+            ExistingOrder before = existing.get(row.wooCommerceId());
+            changes.add(new RevenueRollupService.Change(
+                    before != null ? before.snapshot() : null,
+                    snapshot(orderIds.get(row.wooCommerceId()), row)));
+        }
+        revenueRollupService.recordChanges(changes);
+
+        log.debug("Wrote {} orders ({} new, {} unchanged, {} outdated)", changed.size(),
+                wooIds.size() - existing.size(), unchangedIds.size(), outdated);
+    }
+
+    private Map<Long, ExistingOrder> findExisting(List<Long> wooIds) {
+        Map<Long, ExistingOrder> existing = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, woo_commerce_id, status, total, created_at, updated_at, sync_hash, items_hash " +
+                "FROM orders WHERE woo_commerce_id IN (:ids)",
+                Map.of("ids", wooIds),
+                rs -> {
+                    long id = rs.getLong("id");
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    BigDecimal total = rs.getBigDecimal("total");
+                    RevenueRollupService.Snapshot snapshot = createdAt == null ? null
+                            : new RevenueRollupService.Snapshot(id, createdAt.toLocalDateTime().toLocalDate(),
+                                    OrderStatus.valueOf(rs.getString("status")),
+                                    total != null ? total : BigDecimal.ZERO);
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    existing.put(rs.getLong("woo_commerce_id"), new ExistingOrder(id, snapshot,
+                            updatedAt != null ? updatedAt.toLocalDateTime() : null,
+                            rs.getObject("sync_hash", Long.class), rs.getObject("items_hash", Long.class)));
+                });
+        return existing;
+    }
+
+    private Map<Long, Long> findIds(List<Long> wooIds) {
+        Map<Long, Long> ids = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, woo_commerce_id FROM orders WHERE woo_commerce_id IN (:ids)",
+                Map.of("ids", wooIds),
+                (RowCallbackHandler) rs -> ids.put(rs.getLong("woo_commerce_id"), rs.getLong("id")));
+        return ids;
+    }
+
+    private void touch(List<Long> orderIds) {
+        if (!orderIds.isEmpty()) {
+            jdbcTemplate.update("UPDATE orders SET last_synced_at = :now WHERE id IN (:ids)",
+                    Map.of("now", Timestamp.valueOf(LocalDateTime.now()), "ids", orderIds));
+        }
+    }
+
+    private void upsertOrders(List<HashedRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.getJdbcOperations().batchUpdate(UPSERT_ORDER, rows, rows.size(), (ps, hashed) -> {
+            OrderRow row = hashed.row();
+            ps.setLong(1, row.wooCommerceId());
+            ps.setString(2, row.orderNumber());
+            ps.setBigDecimal(3, row.total());
+            ps.setString(4, row.status().name());
+            setLong(ps, 5, row.customerId());
+            setTimestamp(ps, 6, row.createdAt());
+            setTimestamp(ps, 7, row.updatedAt());
+            ps.setTimestamp(8, now);
+            ps.setLong(9, hashed.syncHash());
+            ps.setLong(10, hashed.itemsHash());
+        });
+    }
+
+    /**
+     * Line items are replaced as a whole, like the WooCommerce order they come
+     * from, and only when they changed
+     */
+    private void replaceItems(List<HashedRow> rows, Map<Long, Long> orderIds, Map<Long, ExistingOrder> existing) {
+        List<Long> staleOrderIds = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+
+        for (HashedRow hashed : rows) {
+            OrderRow row = hashed.row();
+            ExistingOrder before = existing.get(row.wooCommerceId());
+            if (row.items() == null || row.items().isEmpty()
+                    || (before != null && Objects.equals(before.itemsHash(), hashed.itemsHash()))) {
+                continue;
+            }
+            Long orderId = orderIds.get(row.wooCommerceId());
+            if (before != null) {
+                staleOrderIds.add(orderId);
+            }
+            for (ItemRow item : row.items()) {
+                items.add(new Object[]{orderId, item.productId(), item.productName(),
+                        item.quantity(), item.total(), item.metadata()});
+            }
+        }
+
+        if (!staleOrderIds.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (:ids)", Map.of("ids", staleOrderIds));
+        }
+        if (!items.isEmpty()) {
+            jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_ITEM, items,
+                    new int[]{Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.INTEGER, Types.DECIMAL, Types.VARCHAR});
+        }
+    }
+
+    /**
+     * Whether an incoming version is older than the stored one; an unknown
+     * date on either side never counts as older
+     */
+    private static boolean isOutdated(LocalDateTime modifiedAt, LocalDateTime storedModifiedAt) {
+        return modifiedAt != null && storedModifiedAt != null && modifiedAt.isBefore(storedModifiedAt);
+    }
+
+    /**
+     * ON DUPLICATE KEY UPDATE assignments that take the incoming values unless
+     * the stored row was modified later. MySQL applies the assignments in
+     * order, so updated_at has to be the last column.
+     */
+    private static String unlessOutdated(String... columns) {
+        return Arrays.stream(columns)
+                .map(column -> column + " = CASE WHEN VALUES(updated_at) < updated_at THEN " + column +
+                        " ELSE VALUES(" + column + ") END")
+                .collect(Collectors.joining(", "));
+    }
+
+    private static long hash(OrderRow row) {
+        return SyncHash.create()
+                .add(row.orderNumber())
+                .add(row.total())
+                .add(row.status())
+                .add(row.customerId())
+                .add(row.createdAt())
+                .add(row.updatedAt())
+                .value();
+    }
+
+    private static long hashItems(List<ItemRow> items) {
+        SyncHash hash = SyncHash.create();
+        if (items != null) {
+            for (ItemRow item : items) {
+                hash.add(item.productId())
+                        .add(item.productName())
+                        .add(item.quantity())
+                        .add(item.total())
+                        .add(item.metadata());
+            }
+        }
+        return hash.value();
+    }
+
+    private static RevenueRollupService.Snapshot snapshot(Long orderId, OrderRow row) {
+        if (row.createdAt() == null || row.status() == null) {
+            return null;
+        }
+        BigDecimal total = row.total() != null ? row.total() : BigDecimal.ZERO;
+        return new RevenueRollupService.Snapshot(orderId, row.createdAt().toLocalDate(), row.status(), total);
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value != null) {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        } else {
+            ps.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
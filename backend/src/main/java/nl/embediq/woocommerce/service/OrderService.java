@@ -0,0 +1,41 @@
+package nl.embediq.woocommerce.service;
+
+import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes manually managed orders. Each write and its share of the revenue
+ * rollup are committed together, so the rollup cannot drift from the
+ * orders table when one of them fails.
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    /**
+     * Saves a new or changed order, including its items
+     *
+     * @param previous snapshot taken before the order was changed, null for a new order
+     */
+    @Transactional
+    public Order save(Order order, RevenueRollupService.Snapshot previous) {
+        Order saved = orderRepository.save(order);
+        revenueRollupService.recordChange(previous, saved);
+        return saved;
+    }
+
+    @Transactional
+    public void delete(Order order) {
+        RevenueRollupService.Snapshot previous = revenueRollupService.snapshot(order);
+        orderRepository.delete(order);
+        revenueRollupService.recordChange(previous, null);
+    }
+}
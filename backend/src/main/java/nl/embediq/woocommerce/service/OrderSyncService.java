@@ -1,35 +1,34 @@
 package nl.embediq.woocommerce.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.OrderItemMetadataDTO;
 import nl.embediq.woocommerce.dto.SyncResult;
 import nl.embediq.woocommerce.dto.WooBilling;
+import nl.embediq.woocommerce.dto.WooLineItem;
 import nl.embediq.woocommerce.dto.WooOrder;
-import nl.embediq.woocommerce.entity.Customer;
-import nl.embediq.woocommerce.entity.Order;
-import nl.embediq.woocommerce.entity.OrderItem;
+import nl.embediq.woocommerce.dto.WooPage;
 import nl.embediq.woocommerce.entity.SyncStatus;
 import nl.embediq.woocommerce.enums.OrderStatus;
 import nl.embediq.woocommerce.enums.SyncStatusEnum;
 import nl.embediq.woocommerce.enums.SyncType;
-import nl.embediq.woocommerce.repository.CustomerRepository;
-import nl.embediq.woocommerce.repository.OrderItemRepository;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
 import nl.embediq.woocommerce.repository.OrderRepository;
 import nl.embediq.woocommerce.repository.SyncStatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,25 +39,61 @@ public class OrderSyncService {
     private WooCommerceClient wooCommerceClient;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private CustomerResolver customerResolver;
 
     @Autowired
-    private CustomerRepository customerRepository;
+    private SyncStatusRepository syncStatusRepository;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private OrderBatchWriter orderBatchWriter;
 
     @Autowired
-    private SyncStatusRepository syncStatusRepository;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @Autowired
-    private EntityManager entityManager;
+    private SyncJobRegistry syncJobRegistry;
 
-    @Value("${woocommerce.sync.rate-limit-ms}")
-    private long rateLimitMs;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    @Autowired
+    private SyncMetrics syncMetrics;
+
+    /**
+     * Held around every order transaction up to its commit, so a sync page and
+     * a webhook update never derive rollup deltas from the same old state
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Lets the order sync wait for customers that are still being synced
+     */
+    @FunctionalInterface
+    public interface CustomerGate {
+
+        CustomerGate NONE = wooCustomerIds -> { };
+
+        /**
+         * Returns once the given WooCommerce customers are stored, or when
+         * waiting longer will not make them appear
+         */
+        void await(Collection<Long> wooCustomerIds);
+    }
 
-    @Transactional
     public SyncResult syncOrders() {
+        return syncOrders(CustomerGate.NONE);
+    }
+
+    public SyncResult syncOrders(CustomerGate customerGate) {
         log.info("Starting order sync...");
 
         SyncStatus syncStatus = getOrCreateSyncStatus(SyncType.ORDER);
@@ -75,46 +110,66 @@ public class OrderSyncService {
         try {
             LocalDateTime modifiedAfter = syncStatus.getLastSuccessfulSync();
 
-            while (true) {
-                List<WooOrder> wooOrders = wooCommerceClient.getOrders(page, modifiedAfter);
-
-                if (wooOrders.isEmpty()) {
-                    log.info("No more orders to sync");
-                    break;
-                }
-
-                for (WooOrder wooOrder : wooOrders) {
-                    try {
-                        processOrder(wooOrder);
-                        processedCount++;
-                    } catch (Exception e) {
-                        log.error("Failed to process order {}", wooOrder.getId(), e);
-                        failedCount++;
-
-                        // CRITICAL: Clear the EntityManager to prevent session corruption
-                        // This removes any entities in a corrupted state from the persistence context
-                        entityManager.clear();
+            // Set only when pages are left over, a stop after the last page completes the sync
+            boolean stopped = false;
+            try (WooPagePrefetcher<WooOrder> pages = wooCommerceClient.prefetchOrders(page, modifiedAfter)) {
+                // Orders are written per page, so a stop takes effect between pages
+                while (pages.hasNext()) {
+                    if (stopRequested()) {
+                        stopped = true;
+                        break;
                     }
+                    WooPage<WooOrder> wooPage = pages.next();
+
+                    List<MappedOrder> mapped = new ArrayList<>(wooPage.size());
+                    List<String> datesModified = new ArrayList<>(wooPage.size());
+                    for (WooOrder wooOrder : wooPage.items()) {
+                        datesModified.add(wooOrder.getDateModified());
+                        try {
+                            mapped.add(mapOrder(wooOrder));
+                        } catch (Exception e) {
+                            log.error("Failed to process order {}", wooOrder.getId(), e);
+                            enqueueRetry(wooOrder.getId(), wooOrder.getDateModified());
+                            failedCount++;
+                        }
+                    }
+
+                    customerGate.await(mapped.stream()
+                            .map(MappedOrder::wooCustomerId)
+                            .filter(id -> id != null && id > 0)
+                            .toList());
+
+                    // Each page commits on its own, so its persistence context
+                    // is dropped and a failed run keeps the pages before it
+                    List<OrderBatchWriter.OrderRow> failed = inWriteLock(() ->
+                            transactionTemplate.execute(status -> writePage(resolveCustomers(mapped))));
+                    failed.forEach(row -> enqueueRetry(row.wooCommerceId(), row.updatedAt()));
+                    syncMetrics.recordPage(SyncType.ORDER, mapped.size() - failed.size(),
+                            wooPage.size() - mapped.size() + failed.size(), datesModified.stream());
+                    processedCount += mapped.size() - failed.size();
+                    failedCount += failed.size();
+
+                    // Checkpoint once the page is committed. A page redone after
+                    // a crash is cheap, its orders are skipped by sync hash.
+                    syncStatus.setLastProcessedPage(wooPage.page());
+                    syncStatus.setTotalRecordsProcessed(processedCount);
+                    syncStatus.setFailedRecords(failedCount);
+                    syncStatus = syncStatusRepository.save(syncStatus);
                 }
+            }
 
-                // Update progress
-                syncStatus.setLastProcessedPage(page);
-                syncStatus.setTotalRecordsProcessed(processedCount);
-                syncStatus.setFailedRecords(failedCount);
+            if (stopped) {
+                syncStatus.setStatus(SyncStatusEnum.PAUSED);
                 syncStatusRepository.save(syncStatus);
 
-                // Check if we got less than expected (last page)
-                if (wooOrders.size() < 100) {
-                    log.info("Received partial page, sync complete");
-                    break;
-                }
-
-                page++;
+                log.info("Order sync paused after page {}: processed={}, failed={}",
+                        syncStatus.getLastProcessedPage(), processedCount, failedCount);
 
-                // Rate limiting
-                Thread.sleep(rateLimitMs);
+                return new SyncResult(false, processedCount, failedCount, "Sync paused");
             }
 
+            log.info("No more orders to sync");
+
             // Mark as successful
             syncStatus.setStatus(SyncStatusEnum.SUCCESS);
             syncStatus.setLastSuccessfulSync(LocalDateTime.now());
@@ -138,222 +193,169 @@ public class OrderSyncService {
         }
     }
 
+    private boolean stopRequested() {
+        return syncJobRegistry.isStopRequested(SyncType.ORDER);
+    }
+
     @Transactional(propagation = Propagation.REQUIRED)
     public void processOrder(WooOrder wooOrder) {
         log.debug("Processing order: {}", wooOrder.getId());
+        orderBatchWriter.writePage(resolveCustomers(List.of(mapOrder(wooOrder))));
+    }
 
-        try {
-            // Find or create customer first
-            Customer customer = null;
-            if (wooOrder.getCustomerId() != null && wooOrder.getCustomerId() > 0) {
-                customer = customerRepository.findByWooCommerceId(wooOrder.getCustomerId())
-                        .orElseGet(() -> {
-                            log.warn("Customer {} not found for order {}",
-                                    wooOrder.getCustomerId(), wooOrder.getId());
-                            return null;
-                        });
-            } else if (wooOrder.getBilling() != null) {
-                // Guest checkout
-                customer = createGuestCustomer(wooOrder.getBilling());
-            }
-
-            // Find or create order
-            Order order = orderRepository.findByWooCommerceId(wooOrder.getId())
-                    .orElse(new Order());
-
-            boolean isNewOrder = order.getId() == null;
-
-            // Map order data
-            order.setWooCommerceId(wooOrder.getId());
-            order.setOrderNumber(wooOrder.getOrderNumber());
-            order.setTotal(new BigDecimal(wooOrder.getTotal()));
-            order.setStatus(mapOrderStatus(wooOrder.getStatus()));
-            order.setCustomer(customer);
-            order.setCreatedAt(parseWooDate(wooOrder.getDateCreated()));
-            order.setUpdatedAt(parseWooDate(wooOrder.getDateModified()));
-            order.setLastSyncedAt(LocalDateTime.now());
-
-            // Save order first
-            order = orderRepository.save(order);
+    /**
+     * Writes one order outside of a sync run, e.g. from a webhook
+     */
+    public void applyOrder(WooOrder wooOrder) {
+        inWriteLock(() -> transactionTemplate.execute(status -> {
+            processOrder(wooOrder);
+            return null;
+        }));
+    }
 
-            // Process line items
-            if (wooOrder.getLineItems() != null && !wooOrder.getLineItems().isEmpty()) {
+    /**
+     * Removes an order deleted in WooCommerce, together with its items and
+     * its share of the revenue rollup
+     */
+    public void deleteOrder(Long wooCommerceId) {
+        inWriteLock(() -> transactionTemplate.execute(status -> {
+            orderRepository.findByWooCommerceId(wooCommerceId).ifPresent(order -> {
+                RevenueRollupService.Snapshot previous = revenueRollupService.snapshot(order);
+                orderRepository.delete(order);
+                revenueRollupService.recordChange(previous, null);
+                log.info("Deleted order {} ({})", wooCommerceId, order.getOrderNumber());
+            });
+            return null;
+        }));
+    }
 
-                // Clear old items if updating
-                if (!isNewOrder) {
-                    orderItemRepository.deleteByOrderId(order.getId());
-                }
+    private <T> T inWriteLock(Supplier<T> work) {
+        writeLock.lock();
+        try {
+            return work.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-                // Create new items
-                final Order finalOrder = order;
-                List<OrderItem> items = wooOrder.getLineItems().stream()
-                        .map(wooItem -> {
-                            OrderItem item = new OrderItem();
-                            item.setOrder(finalOrder);
-                            item.setProductId(wooItem.getProductId());
-                            item.setProductName(wooItem.getName());
-                            item.setQuantity(wooItem.getQuantity());
-                            item.setTotal(new BigDecimal(wooItem.getTotal()));
-
-                            // Map metadata including product addons
-                            if (wooItem.getMetaData() != null && !wooItem.getMetaData().isEmpty()) {
-                                try {
-                                    ObjectMapper mapper = new ObjectMapper();
-
-                                    // Filter and convert metadata to OrderItemMetadataDTO
-                                    // Only include metadata that:
-                                    // 1. Doesn't start with _ (internal WooCommerce fields)
-                                    // 2. Has a simple string or primitive value (not complex objects)
-                                    List<OrderItemMetadataDTO> metadataList = wooItem.getMetaData().stream()
-                                            .filter(meta -> {
-                                                // Skip internal keys
-                                                if (meta.getKey() == null || meta.getKey().startsWith("_")) {
-                                                    return false;
-                                                }
-                                                // Skip complex nested objects (like WCPA internal data)
-                                                if (meta.getValue() instanceof Map || meta.getValue() instanceof List) {
-                                                    return false;
-                                                }
-                                                // Skip if display_value is a complex object (Map or List)
-                                                if (meta.getDisplayValue() != null &&
-                                                    (meta.getDisplayValue() instanceof Map || meta.getDisplayValue() instanceof List)) {
-                                                    return false;
-                                                }
-                                                return true;
-                                            })
-                                            .map(meta -> {
-                                                OrderItemMetadataDTO metaDTO = new OrderItemMetadataDTO();
-                                                metaDTO.setKey(meta.getKey());
-                                                metaDTO.setDisplayKey(meta.getDisplayKey() != null ? meta.getDisplayKey() : meta.getKey());
-                                                metaDTO.setValue(meta.getValue() != null ? meta.getValue().toString() : "");
-                                                // Convert displayValue to String safely
-                                                String displayValueStr = metaDTO.getValue();
-                                                if (meta.getDisplayValue() != null) {
-                                                    displayValueStr = meta.getDisplayValue().toString();
-                                                }
-                                                metaDTO.setDisplayValue(displayValueStr);
-                                                return metaDTO;
-                                            })
-                                            .collect(Collectors.toList());
-
-                                    if (!metadataList.isEmpty()) {
-                                        String metadataJson = mapper.writeValueAsString(metadataList);
-                                        item.setMetadata(metadataJson);
-                                        log.debug("Saved {} metadata items for order item {}", metadataList.size(), wooItem.getId());
-                                    }
-                                } catch (Exception e) {
-                                    log.warn("Failed to serialize metadata for order item {}: {}", wooItem.getId(), e.getMessage());
-                                }
-                            }
-
-                            return item;
-                        })
-                        .collect(Collectors.toList());
+    /**
+     * An order mapped to a row, with what is needed to look up its customer
+     */
+    private record MappedOrder(OrderBatchWriter.OrderRow row, Long wooCustomerId, WooBilling billing) {
+    }
 
-                orderItemRepository.saveAll(items);
+    /**
+     * Looks up the customers of all orders at once and fills in their ids
+     */
+    private List<OrderBatchWriter.OrderRow> resolveCustomers(List<MappedOrder> orders) {
+        List<Long> wooCustomerIds = new ArrayList<>();
+        List<WooBilling> guestBillings = new ArrayList<>();
+        for (MappedOrder order : orders) {
+            if (order.wooCustomerId() != null && order.wooCustomerId() > 0) {
+                wooCustomerIds.add(order.wooCustomerId());
+            } else if (order.billing() != null) {
+                // Guest checkout
+                guestBillings.add(order.billing());
             }
-
-            log.debug("Order {} saved successfully with {} items",
-                    order.getWooCommerceId(),
-                    wooOrder.getLineItems() != null ? wooOrder.getLineItems().size() : 0);
-
-        } catch (Exception e) {
-            log.error("Error processing order {}: {}", wooOrder.getId(), e.getMessage());
-            throw e; // Re-throw so the outer catch block can handle it
         }
+
+        CustomerResolver.PageCustomers customers = customerResolver.resolve(wooCustomerIds, guestBillings);
+        return orders.stream()
+                .map(order -> order.row().withCustomerId(
+                        customers.customerId(order.wooCustomerId(), order.billing())))
+                .collect(Collectors.toList());
     }
 
-    private Customer createGuestCustomer(WooBilling billing) {
-        // Validate billing data first to prevent null/empty email queries
-        if (billing == null) {
-            log.warn("Billing data is null, cannot create guest customer");
-            return null;
+    /**
+     * Writes the page in one batch. If that fails the orders are retried one
+     * by one so a single bad order does not cost the whole page.
+     *
+     * @return the orders that could not be written
+     */
+    private List<OrderBatchWriter.OrderRow> writePage(List<OrderBatchWriter.OrderRow> rows) {
+        try {
+            orderBatchWriter.writePage(rows);
+            return List.of();
+        } catch (Exception e) {
+            log.warn("Batch write of {} orders failed, retrying one by one: {}", rows.size(), e.getMessage());
         }
 
-        if (billing.getEmail() == null || billing.getEmail().trim().isEmpty()) {
-            log.warn("Email is null or empty in billing data, cannot create guest customer");
-            return null;
+        List<OrderBatchWriter.OrderRow> failed = new ArrayList<>();
+        for (OrderBatchWriter.OrderRow row : rows) {
+            try {
+                orderBatchWriter.writePage(List.of(row));
+            } catch (Exception e) {
+                log.error("Failed to write order {}", row.wooCommerceId(), e);
+                failed.add(row);
+            }
         }
+        return failed;
+    }
 
-        // Check for existing customer by email (email is now unique key)
-        try {
-            Optional<Customer> existing = customerRepository.findByEmail(billing.getEmail());
-            if (existing.isPresent()) {
-                Customer customer = existing.get();
-
-                // Update address if customer doesn't have one yet
-                boolean needsUpdate = false;
-                if (customer.getAddress() == null || customer.getAddress().isEmpty()) {
-                    customer.setCompanyName(billing.getCompany());
-                    customer.setPhone(billing.getPhone());
-                    customer.setAddress(billing.getAddress1());
-                    customer.setAddress2(billing.getAddress2());
-                    customer.setCity(billing.getCity());
-                    customer.setPostalCode(billing.getPostcode());
-                    customer.setState(billing.getState());
-                    customer.setCountry(billing.getCountry());
-                    needsUpdate = true;
-                }
+    /**
+     * Leaves an order that failed to the sync workers, which retry it with
+     * backoff instead of waiting for the next sync
+     *
+     * @param version the modification date; an order that changed since it
+     *                failed is retried right away
+     */
+    private void enqueueRetry(Long wooCommerceId, Object version) {
+        syncWorkQueue.enqueue(SyncType.ORDER, wooCommerceId, SyncWorkAction.UPSERT, null,
+                SyncHash.create().add(version).value());
+    }
 
-            log.debug("Created new guest customer with email and address: {}", billing.getEmail());
-                if (customer.getCompanyName() == null || customer.getCompanyName().isEmpty()) {
-                    if (billing.getCompany() != null && !billing.getCompany().isEmpty()) {
-                        customer.setCompanyName(billing.getCompany());
-                        needsUpdate = true;
-                    }
-                }
+    /**
+     * Maps the order and its line items to rows; the customer is resolved per page
+     */
+    private MappedOrder mapOrder(WooOrder wooOrder) {
+        List<OrderBatchWriter.ItemRow> items = wooOrder.getLineItems() == null ? null
+                : wooOrder.getLineItems().stream()
+                        .map(this::toItemRow)
+                        .collect(Collectors.toList());
 
-                // Also update name if it was empty
-                if (customer.getFirstName() == null || customer.getFirstName().isEmpty()) {
-                    customer.setFirstName(billing.getFirstName());
-                    needsUpdate = true;
-                }
-                if (customer.getLastName() == null || customer.getLastName().isEmpty()) {
-                    customer.setLastName(billing.getLastName());
-                    needsUpdate = true;
-                }
+        OrderBatchWriter.OrderRow row = new OrderBatchWriter.OrderRow(
+                wooOrder.getId(),
+                wooOrder.getOrderNumber(),
+                new BigDecimal(wooOrder.getTotal()),
+                mapOrderStatus(wooOrder.getStatus()),
+                null,
+                parseWooDate(wooOrder.getDateCreated()),
+                parseWooDate(wooOrder.getDateModified()),
+                items);
+        return new MappedOrder(row, wooOrder.getCustomerId(), wooOrder.getBilling());
+    }
 
-                if (needsUpdate) {
-                    customer.setLastSyncedAt(LocalDateTime.now());
-                    customer = customerRepository.save(customer);
-                    log.debug("Updated customer {} with address information", customer.getEmail());
-                }
+    private OrderBatchWriter.ItemRow toItemRow(WooLineItem wooItem) {
+        String metadataJson = null;
+
+        // Map metadata including product addons
+        if (wooItem.getMetaData() != null && !wooItem.getMetaData().isEmpty()) {
+            try {
+                // Internal (_-prefixed) and nested entries are already
+                // dropped while parsing, see WooMetaDataListDeserializer
+                List<OrderItemMetadataDTO> metadataList = wooItem.getMetaData().stream()
+                        .map(meta -> {
+                            OrderItemMetadataDTO metaDTO = new OrderItemMetadataDTO();
+                            metaDTO.setKey(meta.getKey());
+                            metaDTO.setDisplayKey(meta.getDisplayKey() != null ? meta.getDisplayKey() : meta.getKey());
+                            metaDTO.setValue(meta.getValue() != null ? meta.getValue() : "");
+                            metaDTO.setDisplayValue(meta.getDisplayValue() != null ? meta.getDisplayValue() : metaDTO.getValue());
+                            return metaDTO;
+                        })
+                        .collect(Collectors.toList());
 
-                return customer;
+                metadataJson = objectMapper.writeValueAsString(metadataList);
+            } catch (Exception e) {
+                log.warn("Failed to serialize metadata for order item {}: {}", wooItem.getId(), e.getMessage());
             }
-        } catch (Exception e) {
-            log.error("Error finding customer by email {}: {}", billing.getEmail(), e.getMessage());
-            // Continue to create new customer
         }
 
-        // Create new guest customer
-        // woo_commerce_id is NULL for guests, email is the unique identifier
-        Customer customer = new Customer();
-        customer.setWooCommerceId(null);
-        customer.setEmail(billing.getEmail());
-        customer.setFirstName(billing.getFirstName());
-        customer.setLastName(billing.getLastName());
-        customer.setCompanyName(billing.getCompany());
-
-        // Add address information from billing
-        customer.setPhone(billing.getPhone());
-        customer.setAddress(billing.getAddress1());
-        customer.setAddress2(billing.getAddress2());
-        customer.setCity(billing.getCity());
-        customer.setPostalCode(billing.getPostcode());
-        customer.setState(billing.getState());
-        customer.setCountry(billing.getCountry());
-
-        customer.setLastSyncedAt(LocalDateTime.now());
-
-        try {
-            customer = customerRepository.save(customer);
-            log.debug("Created new guest customer with email: {}", billing.getEmail());
-            return customer;
-        } catch (Exception e) {
-            log.error("Error saving guest customer with email {}: {}", billing.getEmail(), e.getMessage());
-            return null;
-        }
+        return new OrderBatchWriter.ItemRow(
+                wooItem.getProductId(),
+                wooItem.getName(),
+                wooItem.getQuantity(),
+                new BigDecimal(wooItem.getTotal()),
+                metadataJson);
     }
 
     private OrderStatus mapOrderStatus(String wooStatus) {
@@ -1,17 +1,24 @@
 package nl.embediq.woocommerce.service;
 
+import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
 import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.borders.SolidBorder;
 import com.itextpdf.layout.element.*;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 import com.itextpdf.layout.properties.VerticalAlignment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.entity.Customer;
 import nl.embediq.woocommerce.entity.Order;
 import nl.embediq.woocommerce.entity.OrderItem;
 import org.springframework.stereotype.Service;
@@ -32,6 +39,47 @@ public class PdfGeneratorService {
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Bump when the layout changes, so stored invoices are rendered again
+     */
+    private static final int LAYOUT_VERSION = 2;
+
+    /**
+     * Decoded once, every invoice places the same image
+     */
+    private ImageData logo;
+
+    // Styles only carry properties, so one instance serves every document
+    private static final DeviceRgb BRAND_ORANGE = new DeviceRgb(255, 87, 34);
+
+    private static final Style ITEMS_HEADER = new Style()
+            .setFontSize(10)
+            .setBold()
+            .setBackgroundColor(ColorConstants.WHITE)
+            .setBorder(Border.NO_BORDER)
+            .setBorderBottom(new SolidBorder(ColorConstants.BLACK, 1));
+
+    private static final Style ITEM_CELL = new Style()
+            .setFontSize(9)
+            .setBorder(Border.NO_BORDER)
+            .setPaddingTop(5)
+            .setPaddingBottom(5);
+
+    private static final Style TOTALS_CELL = new Style()
+            .setFontSize(9)
+            .setTextAlignment(TextAlignment.RIGHT)
+            .setBorder(Border.NO_BORDER);
+
+    private static final Style TOTALS_GRAND = new Style()
+            .setFontSize(10)
+            .setBold()
+            .setTextAlignment(TextAlignment.RIGHT)
+            .setBorder(Border.NO_BORDER)
+            .setPaddingTop(5);
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("d MMMM yyyy", new Locale("nl", "NL"));
     private static final BigDecimal BTW_RATE = new BigDecimal("0.21"); // 21% BTW
 
@@ -46,7 +94,58 @@ public class PdfGeneratorService {
     private static final String COMPANY_BTW = "Btw nr: NL004670134B34";
     private static final String COMPANY_IBAN = "NL60 RABO 0338 6295 64";
 
+    @PostConstruct
+    void loadLogo() {
+        try {
+            Resource resource = resourceLoader.getResource("classpath:static/images/Logo_3dp.png");
+            logo = ImageDataFactory.create(resource.getInputStream().readAllBytes());
+        } catch (Exception e) {
+            log.warn("Logo not available, invoices show the company name instead: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hash of everything an invoice of this order shows; equal hashes render
+     * the same PDF
+     */
+    public long invoiceHash(Order order) {
+        SyncHash hash = SyncHash.create()
+                .add(LAYOUT_VERSION)
+                .add(order.getOrderNumber())
+                .add(order.getCreatedAt())
+                .add(order.getSubtotal())
+                .add(order.getDiscountPercentage())
+                .add(order.getDiscountAmount())
+                .add(order.getTotal());
+
+        Customer customer = order.getCustomer();
+        if (customer != null) {
+            hash.add(customer.getCompanyName())
+                    .add(customer.getFirstName())
+                    .add(customer.getLastName())
+                    .add(customer.getAddress())
+                    .add(customer.getPostalCode())
+                    .add(customer.getCity());
+        }
+        for (OrderItem item : order.getItems()) {
+            hash.add(item.getQuantity())
+                    .add(item.getProductName())
+                    .add(item.getTotal());
+        }
+        return hash.value();
+    }
+
+    /**
+     * Renders the invoice, timed as invoice.render
+     */
     public byte[] generateOrderPdf(Order order) {
+        return Timer.builder("invoice.render")
+                .description("Time to render an invoice PDF")
+                .register(meterRegistry)
+                .record(() -> render(order));
+    }
+
+    private byte[] render(Order order) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             PdfWriter writer = new PdfWriter(baos);
@@ -106,18 +205,14 @@ public class PdfGeneratorService {
                 .setBorder(Border.NO_BORDER)
                 .setVerticalAlignment(VerticalAlignment.TOP);
 
-        // If you have a logo, add it here:
-        try {
-            Resource resource = resourceLoader.getResource("classpath:static/images/Logo_3dp.png");
-            Image logo = new Image(ImageDataFactory.create(resource.getInputStream().readAllBytes()));
-            logo.setWidth(250);
-            leftCell.add(logo);
-        } catch (Exception e) {
+        if (logo != null) {
+            leftCell.add(new Image(logo).setWidth(250));
+        } else {
             // Fallback to text if logo not available
             leftCell.add(new Paragraph(COMPANY_NAME)
                     .setFontSize(16)
                     .setBold()
-                    .setFontColor(new DeviceRgb(255, 87, 34))); // Orange color
+                    .setFontColor(BRAND_ORANGE));
         }
 
         // Right side - Company details
@@ -226,31 +321,16 @@ public class PdfGeneratorService {
                 .useAllAvailableWidth();
 
         // Header
-        table.addHeaderCell(new Cell()
-                .add(new Paragraph("Aantal").setFontSize(10).setBold())
-                .setBackgroundColor(ColorConstants.WHITE)
-                .setBorder(Border.NO_BORDER)
-                .setBorderBottom(new com.itextpdf.layout.borders.SolidBorder(ColorConstants.BLACK, 1)));
-
-        table.addHeaderCell(new Cell()
-                .add(new Paragraph("Omschrijving").setFontSize(10).setBold())
-                .setBackgroundColor(ColorConstants.WHITE)
-                .setBorder(Border.NO_BORDER)
-                .setBorderBottom(new com.itextpdf.layout.borders.SolidBorder(ColorConstants.BLACK, 1)));
-
-        table.addHeaderCell(new Cell()
-                .add(new Paragraph("Prijs per stuk").setFontSize(10).setBold())
-                .setBackgroundColor(ColorConstants.WHITE)
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
-                .setBorderBottom(new com.itextpdf.layout.borders.SolidBorder(ColorConstants.BLACK, 1)));
-
-        table.addHeaderCell(new Cell()
-                .add(new Paragraph("Regeltotaal").setFontSize(10).setBold())
-                .setBackgroundColor(ColorConstants.WHITE)
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
-                .setBorderBottom(new com.itextpdf.layout.borders.SolidBorder(ColorConstants.BLACK, 1)));
+        table.addHeaderCell(new Cell().addStyle(ITEMS_HEADER)
+                .add(new Paragraph("Aantal")));
+        table.addHeaderCell(new Cell().addStyle(ITEMS_HEADER)
+                .add(new Paragraph("Omschrijving")));
+        table.addHeaderCell(new Cell().addStyle(ITEMS_HEADER)
+                .add(new Paragraph("Prijs per stuk"))
+                .setTextAlignment(TextAlignment.RIGHT));
+        table.addHeaderCell(new Cell().addStyle(ITEMS_HEADER)
+                .add(new Paragraph("Regeltotaal"))
+                .setTextAlignment(TextAlignment.RIGHT));
 
         // Items
         for (OrderItem item : order.getItems()) {
@@ -260,35 +340,16 @@ public class PdfGeneratorService {
                     RoundingMode.HALF_UP
             );
 
-            table.addCell(new Cell()
-                    .add(new Paragraph(String.valueOf(item.getQuantity())).setFontSize(9))
-                    .setBorder(Border.NO_BORDER)
-                    .setPaddingTop(5)
-                    .setPaddingBottom(5));
-
-            // Product name with description on new line if exists
-            Cell descCell = new Cell()
-                    .setBorder(Border.NO_BORDER)
-                    .setPaddingTop(5)
-                    .setPaddingBottom(5);
-            descCell.add(new Paragraph(item.getProductName()).setFontSize(9));
-            // If you have a description field, add it in italic
-            // descCell.add(new Paragraph(item.getDescription()).setFontSize(8).setItalic());
-            table.addCell(descCell);
-
-            table.addCell(new Cell()
-                    .add(new Paragraph(formatCurrency(itemPrice)).setFontSize(9))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBorder(Border.NO_BORDER)
-                    .setPaddingTop(5)
-                    .setPaddingBottom(5));
-
-            table.addCell(new Cell()
-                    .add(new Paragraph(formatCurrency(item.getTotal())).setFontSize(9))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBorder(Border.NO_BORDER)
-                    .setPaddingTop(5)
-                    .setPaddingBottom(5));
+            table.addCell(new Cell().addStyle(ITEM_CELL)
+                    .add(new Paragraph(String.valueOf(item.getQuantity()))));
+            table.addCell(new Cell().addStyle(ITEM_CELL)
+                    .add(new Paragraph(item.getProductName())));
+            table.addCell(new Cell().addStyle(ITEM_CELL)
+                    .add(new Paragraph(formatCurrency(itemPrice)))
+                    .setTextAlignment(TextAlignment.RIGHT));
+            table.addCell(new Cell().addStyle(ITEM_CELL)
+                    .add(new Paragraph(formatCurrency(item.getTotal())))
+                    .setTextAlignment(TextAlignment.RIGHT));
         }
 
         document.add(table);
@@ -302,29 +363,19 @@ public class PdfGeneratorService {
         // Subtotal (before discount)
         BigDecimal subtotal = order.getSubtotal() != null ? order.getSubtotal() : order.getTotal();
 
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph("Subtotaal:").setFontSize(9))
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
+        totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                .add(new Paragraph("Subtotaal:"))
                 .setPaddingTop(5));
-
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph(formatCurrency(subtotal)).setFontSize(9))
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
+        totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                .add(new Paragraph(formatCurrency(subtotal)))
                 .setPaddingTop(5));
 
         // Discount (if applicable)
         if (order.getDiscountPercentage() != null && order.getDiscountPercentage().compareTo(BigDecimal.ZERO) > 0) {
-            totalsTable.addCell(new Cell()
-                    .add(new Paragraph("Korting (" + order.getDiscountPercentage().stripTrailingZeros().toPlainString() + "%):").setFontSize(9))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBorder(Border.NO_BORDER));
-
-            totalsTable.addCell(new Cell()
-                    .add(new Paragraph("-" + formatCurrency(order.getDiscountAmount())).setFontSize(9))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setBorder(Border.NO_BORDER));
+            totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                    .add(new Paragraph("Korting (" + order.getDiscountPercentage().stripTrailingZeros().toPlainString() + "%):")));
+            totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                    .add(new Paragraph("-" + formatCurrency(order.getDiscountAmount()))));
         }
 
         // Calculate BTW
@@ -334,28 +385,16 @@ public class PdfGeneratorService {
         );
 
         // Total incl. BTW
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph("Totaal incl. BTW:").setFontSize(10).setBold())
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
-                .setPaddingTop(5));
-
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph(formatCurrency(totalInclBtw)).setFontSize(10).setBold())
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER)
-                .setPaddingTop(5));
+        totalsTable.addCell(new Cell().addStyle(TOTALS_GRAND)
+                .add(new Paragraph("Totaal incl. BTW:")));
+        totalsTable.addCell(new Cell().addStyle(TOTALS_GRAND)
+                .add(new Paragraph(formatCurrency(totalInclBtw))));
 
         // BTW amount
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph("Waarvan 21% BTW:").setFontSize(9))
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER));
-
-        totalsTable.addCell(new Cell()
-                .add(new Paragraph(formatCurrency(btwAmount)).setFontSize(9))
-                .setTextAlignment(TextAlignment.RIGHT)
-                .setBorder(Border.NO_BORDER));
+        totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                .add(new Paragraph("Waarvan 21% BTW:")));
+        totalsTable.addCell(new Cell().addStyle(TOTALS_CELL)
+                .add(new Paragraph(formatCurrency(btwAmount))));
 
         document.add(totalsTable);
     }
@@ -2,9 +2,9 @@ package nl.embediq.woocommerce.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.SyncResult;
+import nl.embediq.woocommerce.dto.WooPage;
 import nl.embediq.woocommerce.dto.WooProduct;
 import nl.embediq.woocommerce.dto.WooProductVariation;
 import nl.embediq.woocommerce.entity.Product;
@@ -12,19 +12,32 @@ import nl.embediq.woocommerce.entity.ProductVariation;
 import nl.embediq.woocommerce.entity.SyncStatus;
 import nl.embediq.woocommerce.enums.SyncStatusEnum;
 import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import nl.embediq.woocommerce.event.ProductPageSyncedEvent;
 import nl.embediq.woocommerce.repository.ProductRepository;
 import nl.embediq.woocommerce.repository.ProductVariationRepository;
 import nl.embediq.woocommerce.repository.SyncStatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -43,17 +56,25 @@ public class ProductSyncService {
     private SyncStatusRepository syncStatusRepository;
 
     @Autowired
-    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SyncJobRegistry syncJobRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Value("${woocommerce.sync.rate-limit-ms}")
-    private long rateLimitMs;
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    @Autowired
+    private SyncMetrics syncMetrics;
 
     private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
 
-    @Transactional
     public SyncResult syncProducts() {
         log.info("Starting product sync...");
 
@@ -71,37 +92,60 @@ public class ProductSyncService {
         try {
             LocalDateTime modifiedAfter = syncStatus.getLastSuccessfulSync();
 
-            while (true) {
-                List<WooProduct> wooProducts =
-                        wooCommerceClient.getProducts(page, modifiedAfter);
-
-                if (wooProducts.isEmpty()) {
-                    break;
-                }
+            // Set only when pages are left over, a stop after the last page completes the sync
+            boolean stopped = false;
+            try (WooPagePrefetcher<WooProduct> pages = wooCommerceClient.prefetchProducts(page, modifiedAfter)) {
+                while (pages.hasNext()) {
+                    if (stopRequested()) {
+                        stopped = true;
+                        break;
+                    }
+                    WooPage<WooProduct> wooPage = pages.next();
+
+                    // Only ids, dates and the hashes of variable products are kept;
+                    // the records are bound again while processing
+                    List<Long> ids = new ArrayList<>(wooPage.size());
+                    List<String> datesModified = new ArrayList<>(wooPage.size());
+                    Map<Long, Long> variableHashes = new LinkedHashMap<>();
+                    for (WooProduct wooProduct : wooPage.items()) {
+                        ids.add(wooProduct.getId());
+                        datesModified.add(wooProduct.getDateModified());
+                        if ("variable".equalsIgnoreCase(wooProduct.getType())) {
+                            variableHashes.put(wooProduct.getId(), hash(wooProduct));
+                        }
+                    }
 
-                for (WooProduct wooProduct : wooProducts) {
-                    try {
-                        processProduct(wooProduct);
-                        processedCount++;
-                    } catch (Exception e) {
-                        log.error("Failed to process product {}",
-                                wooProduct.getId(), e);
-                        failedCount++;
-                        entityManager.clear();
+                    PageResult result = processPage(wooPage.items(), ids, variableHashes);
+                    result.failed().forEach(this::enqueueRetry);
+                    syncMetrics.recordPage(SyncType.PRODUCT, result.processed(), result.failed().size(),
+                            datesModified.stream());
+                    processedCount += result.processed();
+                    failedCount += result.failed().size();
+                    if (result.processed() + result.failed().size() < wooPage.size()) {
+                        // Stopped halfway, the page is done again on resume
+                        stopped = true;
+                        break;
                     }
+
+                    // Checkpoint once the page is committed. A page redone after
+                    // a crash is cheap, its products are skipped by sync hash.
+                    syncStatus.setLastProcessedPage(wooPage.page());
+                    syncStatus.setTotalRecordsProcessed(processedCount);
+                    syncStatus.setFailedRecords(failedCount);
+                    syncStatus = syncStatusRepository.save(syncStatus);
+
+                    eventPublisher.publishEvent(new ProductPageSyncedEvent(wooPage.page()));
                 }
+            }
 
-                syncStatus.setLastProcessedPage(page);
-                syncStatus.setTotalRecordsProcessed(processedCount);
-                syncStatus.setFailedRecords(failedCount);
+            if (stopped) {
+                syncStatus.setStatus(SyncStatusEnum.PAUSED);
                 syncStatusRepository.save(syncStatus);
 
-                if (wooProducts.size() < 100) {
-                    break;
-                }
+                log.info("Product sync paused after page {}: processed={}, failed={}",
+                        syncStatus.getLastProcessedPage(), processedCount, failedCount);
 
-                page++;
-                Thread.sleep(rateLimitMs);
+                return new SyncResult(false, processedCount, failedCount, "Sync paused");
             }
 
             syncStatus.setStatus(SyncStatusEnum.SUCCESS);
@@ -126,35 +170,233 @@ public class ProductSyncService {
         }
     }
 
-    @Transactional
-    public void processProduct(WooProduct wooProduct) throws JsonProcessingException {
-        Product product = productRepository.findByWooCommerceId(wooProduct.getId())
-                .orElse(new Product());
+    /**
+     * Outcome of a page; fewer records than the page held when it was stopped
+     */
+    private record PageResult(int processed, List<WooProduct> failed) {
+    }
 
-        boolean isNew = product.getId() == null;
+    /**
+     * Processes a page in its own transaction, so it is committed before the
+     * next page is started and the persistence context is dropped with it.
+     * When the page cannot be committed its products are retried in a
+     * transaction each, so one bad record does not cost the whole page.
+     *
+     * @param ids            the WooCommerce ids of the products on the page
+     * @param variableHashes sync hash per WooCommerce id of the variable products on the page
+     */
+    private PageResult processPage(Iterable<WooProduct> wooProducts, List<Long> ids,
+                                   Map<Long, Long> variableHashes) {
+        Map<Long, List<WooProductVariation>> variations = fetchVariations(variableHashes);
+        try {
+            return transactionTemplate.execute(status -> processProducts(wooProducts, ids, variations));
+        } catch (Exception e) {
+            log.warn("Page of {} products failed, retrying one by one: {}", ids.size(), e.getMessage());
+        }
 
-        LocalDateTime wooModified = null;
-        if (wooProduct.getDateModified() != null) {
-            wooModified = LocalDateTime.parse(wooProduct.getDateModified(), ISO_FORMATTER);
+        int processed = 0;
+        List<WooProduct> failed = new ArrayList<>();
+        for (WooProduct wooProduct : wooProducts) {
+            if (stopRequested()) {
+                break;
+            }
+            try {
+                PageResult result = transactionTemplate.execute(status ->
+                        processProducts(List.of(wooProduct), List.of(wooProduct.getId()), variations));
+                processed += result.processed();
+                failed.addAll(result.failed());
+            } catch (Exception e) {
+                log.error("Failed to process product {}", wooProduct.getId(), e);
+                failed.add(wooProduct);
+            }
         }
+        return new PageResult(processed, failed);
+    }
 
-        if (isNew || (wooModified != null &&
-                (product.getModifiedAt() == null || wooModified.isAfter(product.getModifiedAt())))) {
+    /**
+     * Fetches the variations of the changed variable products on a page
+     * concurrently, before its transaction is opened. The client bounds the
+     * requests in flight and shares its rate limit with the other syncs.
+     *
+     * @param variableHashes sync hash per WooCommerce id of the variable products
+     * @return variations per WooCommerce product id; a product whose
+     * variations could not be fetched is missing and fetches them itself
+     */
+    private Map<Long, List<WooProductVariation>> fetchVariations(Map<Long, Long> variableHashes) {
+        if (variableHashes.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Long> storedHashes = productRepository.findByWooCommerceIdIn(
+                        List.copyOf(variableHashes.keySet())).stream()
+                .filter(product -> product.getSyncHash() != null)
+                .collect(Collectors.toMap(Product::getWooCommerceId, Product::getSyncHash, (a, b) -> a));
+
+        Map<Long, Future<List<WooProductVariation>>> futures = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            variableHashes.forEach((wooCommerceId, syncHash) -> {
+                // Unchanged products are skipped, and their variations with them
+                if (!Objects.equals(storedHashes.get(wooCommerceId), syncHash)) {
+                    futures.put(wooCommerceId,
+                            executor.submit(() -> wooCommerceClient.getProductVariations(wooCommerceId)));
+                }
+            });
+        }
+
+        Map<Long, List<WooProductVariation>> variations = new HashMap<>();
+        futures.forEach((wooCommerceId, future) -> {
+            try {
+                variations.put(wooCommerceId, future.get());
+            } catch (ExecutionException e) {
+                log.warn("Could not fetch variations of product {}: {}", wooCommerceId, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return variations;
+    }
+
+    /**
+     * Stops before the next record when the job has been asked to stop
+     *
+     * @param variations prefetched variations per WooCommerce product id
+     */
+    private PageResult processProducts(Iterable<WooProduct> wooProducts, List<Long> ids,
+                                       Map<Long, List<WooProductVariation>> variations) {
+        Map<Long, Product> existing = productRepository.findByWooCommerceIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getWooCommerceId, Function.identity(), (a, b) -> a));
+        List<Long> unchangedIds = new ArrayList<>();
+        int processed = 0;
+        List<WooProduct> failed = new ArrayList<>();
+
+        for (WooProduct wooProduct : wooProducts) {
+            if (stopRequested()) {
+                break;
+            }
+            try {
+                long syncHash = hash(wooProduct);
+                Product product = existing.get(wooProduct.getId());
+                if (product != null && isOutdated(wooProduct, product)) {
+                    log.debug("Skipping product {} - stored version is newer", wooProduct.getId());
+                } else if (product != null && Objects.equals(product.getSyncHash(), syncHash)) {
+                    log.debug("Skipping product {} - not modified", wooProduct.getId());
+                    unchangedIds.add(product.getId());
+                } else {
+                    processProduct(wooProduct, product, syncHash, variations.get(wooProduct.getId()));
+                }
+                processed++;
+            } catch (Exception e) {
+                // A failure that broke the transaction fails the commit,
+                // after which processPage retries the products one by one
+                log.error("Failed to process product {}",
+                        wooProduct.getId(), e);
+                failed.add(wooProduct);
+            }
+        }
+
+        if (!unchangedIds.isEmpty()) {
+            productRepository.touchLastSyncedAt(unchangedIds, LocalDateTime.now());
+        }
+        return new PageResult(processed, failed);
+    }
 
-            log.info("Updating product {} ({})", wooProduct.getId(),
-                    isNew ? "NEW" : "MODIFIED");
+    /**
+     * Leaves a product that failed to the sync workers, which retry it with
+     * backoff instead of waiting for the next sync
+     */
+    private void enqueueRetry(WooProduct wooProduct) {
+        syncWorkQueue.enqueue(SyncType.PRODUCT, wooProduct.getId(), SyncWorkAction.UPSERT, null, hash(wooProduct));
+    }
 
-            updateProductFields(product, wooProduct);
-            product = productRepository.save(product);
+    private boolean stopRequested() {
+        return syncJobRegistry.isStopRequested(SyncType.PRODUCT);
+    }
 
-            if ("variable".equalsIgnoreCase(wooProduct.getType())) {
-                syncProductVariations(product);
+    /**
+     * Creates or updates one product outside of a sync run, e.g. from a webhook
+     */
+    public void processProduct(WooProduct wooProduct) {
+        long syncHash = hash(wooProduct);
+
+        // Fetched before the transaction, so no connection is held during the requests
+        List<WooProductVariation> wooVariations = null;
+        if ("variable".equalsIgnoreCase(wooProduct.getType())) {
+            Product stored = productRepository.findByWooCommerceId(wooProduct.getId()).orElse(null);
+            if (stored == null
+                    || (!isOutdated(wooProduct, stored) && !Objects.equals(stored.getSyncHash(), syncHash))) {
+                wooVariations = wooCommerceClient.getProductVariations(wooProduct.getId());
             }
-        } else {
-            log.debug("Skipping product {} - not modified", wooProduct.getId());
-            product.setLastSyncedAt(LocalDateTime.now());
-            productRepository.save(product);
         }
+
+        List<WooProductVariation> fetchedVariations = wooVariations;
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findByWooCommerceId(wooProduct.getId()).orElse(null);
+            if (product != null && isOutdated(wooProduct, product)) {
+                log.debug("Skipping product {} - stored version is newer", wooProduct.getId());
+            } else if (product != null && Objects.equals(product.getSyncHash(), syncHash)) {
+                productRepository.touchLastSyncedAt(List.of(product.getId()), LocalDateTime.now());
+            } else {
+                processProduct(wooProduct, product, syncHash, fetchedVariations);
+            }
+        });
+    }
+
+    /**
+     * Removes a product deleted in WooCommerce; its variations go with it
+     */
+    public void deleteProduct(Long wooCommerceId) {
+        transactionTemplate.executeWithoutResult(status ->
+                productRepository.findByWooCommerceId(wooCommerceId).ifPresent(product -> {
+                    productRepository.delete(product);
+                    log.info("Deleted product {} ({})", wooCommerceId, product.getName());
+                }));
+    }
+
+    /**
+     * Re-syncs the variations of a stored product, e.g. after a variation webhook
+     */
+    public void syncProductVariations(Long wooCommerceId) {
+        if (productRepository.findByWooCommerceId(wooCommerceId).isEmpty()) {
+            log.debug("Product {} not synced yet, skipping its variations", wooCommerceId);
+            return;
+        }
+
+        // Fetched before the transaction, so no connection is held during the requests
+        List<WooProductVariation> wooVariations = wooCommerceClient.getProductVariations(wooCommerceId);
+        transactionTemplate.executeWithoutResult(status ->
+                productRepository.findByWooCommerceId(wooCommerceId).ifPresent(product ->
+                        syncProductVariations(product, wooVariations)));
+    }
+
+    /**
+     * @param product       the product with this WooCommerce id, null if there is none yet
+     * @param wooVariations its variations when already fetched, otherwise null
+     */
+    private void processProduct(WooProduct wooProduct, Product product, long syncHash,
+                                List<WooProductVariation> wooVariations) {
+        boolean isNew = product == null;
+        if (isNew) {
+            product = new Product();
+        }
+
+        log.info("Updating product {} ({})", wooProduct.getId(),
+                isNew ? "NEW" : "MODIFIED");
+
+        boolean variable = "variable".equalsIgnoreCase(wooProduct.getType());
+        if (variable && wooVariations == null) {
+            wooVariations = wooCommerceClient.getProductVariations(wooProduct.getId());
+        }
+
+        updateProductFields(product, wooProduct);
+        product = productRepository.save(product);
+
+        if (variable) {
+            syncProductVariations(product, wooVariations);
+        }
+
+        // Only now the product counts as synced; when its variations fail it
+        // keeps the old hash, so the retry does not skip it as unchanged
+        product.setSyncHash(syncHash);
     }
 
     private void updateProductFields(Product product, WooProduct wooProduct) {
@@ -181,114 +423,149 @@ public class ProductSyncService {
             product.setModifiedAt(LocalDateTime.parse(
                     wooProduct.getDateModified(), ISO_FORMATTER));
         }
+        product.setWooModifiedAt(wooProduct.getDateModified() != null ? product.getModifiedAt() : null);
 
         product.setLastSyncedAt(LocalDateTime.now());
     }
 
-    @Transactional
-    public void syncProductVariations(Product product) {
-        try {
-            log.info("Syncing variations for product {}", product.getWooCommerceId());
-
-            List<WooProductVariation> wooVariations =
-                    wooCommerceClient.getProductVariations(product.getWooCommerceId());
-
-            if (wooVariations.isEmpty()) {
-                log.debug("No variations found for product {}", product.getWooCommerceId());
-                return;
-            }
-
-            List<Long> processedVariationIds = new ArrayList<>();
-
-            for (WooProductVariation wooVariation : wooVariations) {
-                try {
-                    processVariation(product, wooVariation);
-                    processedVariationIds.add(wooVariation.getId());
-                } catch (Exception e) {
-                    log.error("Failed to process variation {} for product {}",
-                            wooVariation.getId(), product.getWooCommerceId(), e);
+    /**
+     * Brings the stored variations of a product in line with WooCommerce:
+     * new and changed variations are saved together, unchanged ones only
+     * touched and removed ones deleted in one statement; an empty list
+     * removes them all. Any failure fails the product, so it is retried as
+     * a whole.
+     */
+    private void syncProductVariations(Product product, List<WooProductVariation> wooVariations) {
+        // Stored variations; what is left after matching was removed in WooCommerce
+        Map<Long, ProductVariation> removed = variationRepository.findByProduct(product).stream()
+                .filter(variation -> variation.getWooCommerceId() != null)
+                .collect(Collectors.toMap(ProductVariation::getWooCommerceId, Function.identity(), (a, b) -> a));
+
+        // A new variation of this product may still be stored under another one
+        List<Long> newIds = wooVariations.stream()
+                .map(WooProductVariation::getId)
+                .filter(id -> !removed.containsKey(id))
+                .toList();
+        Map<Long, ProductVariation> elsewhere = newIds.isEmpty() ? Map.of()
+                : variationRepository.findByWooCommerceIdIn(newIds).stream()
+                        .collect(Collectors.toMap(ProductVariation::getWooCommerceId, Function.identity(), (a, b) -> a));
+
+        List<ProductVariation> changed = new ArrayList<>();
+        List<Long> unchangedIds = new ArrayList<>();
+        for (WooProductVariation wooVariation : wooVariations) {
+            long syncHash = hash(wooVariation);
+            ProductVariation variation = removed.remove(wooVariation.getId());
+            if (variation != null && Objects.equals(variation.getSyncHash(), syncHash)) {
+                unchangedIds.add(variation.getId());
+            } else {
+                if (variation == null) {
+                    variation = elsewhere.getOrDefault(wooVariation.getId(), new ProductVariation());
                 }
+                updateVariationFields(product, wooVariation, variation, syncHash);
+                changed.add(variation);
             }
+        }
 
-            if (!processedVariationIds.isEmpty()) {
-                List<ProductVariation> existingVariations =
-                        variationRepository.findByProduct(product);
-
-                for (ProductVariation existing : existingVariations) {
-                    if (!processedVariationIds.contains(existing.getWooCommerceId())) {
-                        log.info("Deleting removed variation {} from product {}",
-                                existing.getWooCommerceId(), product.getWooCommerceId());
-                        variationRepository.delete(existing);
-                    }
-                }
-            }
+        log.debug("Variations of product {}: {} changed, {} unchanged, {} removed",
+                product.getWooCommerceId(), changed.size(), unchangedIds.size(), removed.size());
 
-        } catch (Exception e) {
-            log.error("Error syncing variations for product {}",
-                    product.getWooCommerceId(), e);
+        variationRepository.saveAll(changed);
+        if (!unchangedIds.isEmpty()) {
+            variationRepository.touchLastSyncedAt(unchangedIds, LocalDateTime.now());
+        }
+        if (!removed.isEmpty()) {
+            log.info("Deleting removed variations {} from product {}",
+                    removed.keySet(), product.getWooCommerceId());
+            variationRepository.deleteAllInBatch(removed.values());
         }
     }
 
-    private void processVariation(Product product, WooProductVariation wooVariation)
-            throws JsonProcessingException {
+    private void updateVariationFields(Product product, WooProductVariation wooVariation,
+                                       ProductVariation variation, long syncHash) {
+        variation.setWooCommerceId(wooVariation.getId());
+        variation.setProduct(product);
+        variation.setSku(wooVariation.getSku());
 
-        ProductVariation variation = variationRepository
-                .findByWooCommerceId(wooVariation.getId())
-                .orElse(new ProductVariation());
+        variation.setPrice(parsePrice(wooVariation.getPrice()));
+        variation.setRegularPrice(parsePrice(wooVariation.getRegularPrice()));
+        variation.setSalePrice(parsePrice(wooVariation.getSalePrice()));
 
-        boolean isNew = variation.getId() == null;
+        variation.setDescription(stripHtml(wooVariation.getDescription()));
 
-        LocalDateTime wooModified = null;
-        if (wooVariation.getDateModified() != null) {
-            wooModified = LocalDateTime.parse(wooVariation.getDateModified(), ISO_FORMATTER);
+        if (wooVariation.getAttributes() != null) {
+            variation.setAttributes(toJson(wooVariation.getAttributes()));
         }
 
-        if (isNew || (wooModified != null &&
-                (variation.getModifiedAt() == null || wooModified.isAfter(variation.getModifiedAt())))) {
-
-            log.info("Updating variation {} ({})", wooVariation.getId(),
-                    isNew ? "NEW" : "MODIFIED");
+        variation.setWeight(wooVariation.getWeight());
 
-            variation.setWooCommerceId(wooVariation.getId());
-            variation.setProduct(product);
-            variation.setSku(wooVariation.getSku());
-
-            variation.setPrice(parsePrice(wooVariation.getPrice()));
-            variation.setRegularPrice(parsePrice(wooVariation.getRegularPrice()));
-            variation.setSalePrice(parsePrice(wooVariation.getSalePrice()));
+        if (wooVariation.getDimensions() != null) {
+            variation.setDimensions(toJson(wooVariation.getDimensions()));
+        }
 
-            variation.setDescription(stripHtml(wooVariation.getDescription()));
+        variation.setStatus(wooVariation.getStatus());
 
-            if (wooVariation.getAttributes() != null) {
-                variation.setAttributes(objectMapper.writeValueAsString(
-                        wooVariation.getAttributes()));
-            }
-
-            variation.setWeight(wooVariation.getWeight());
+        if (wooVariation.getDateCreated() != null) {
+            variation.setCreatedAt(LocalDateTime.parse(
+                    wooVariation.getDateCreated(), ISO_FORMATTER));
+        }
+        if (wooVariation.getDateModified() != null) {
+            variation.setModifiedAt(LocalDateTime.parse(
+                    wooVariation.getDateModified(), ISO_FORMATTER));
+        }
 
-            if (wooVariation.getDimensions() != null) {
-                variation.setDimensions(objectMapper.writeValueAsString(
-                        wooVariation.getDimensions()));
-            }
+        variation.setLastSyncedAt(LocalDateTime.now());
+        variation.setSyncHash(syncHash);
+    }
 
-            variation.setStatus(wooVariation.getStatus());
+    /**
+     * Whether WooCommerce sent an older version than the one stored, e.g. a
+     * prefetched sync page that arrives after a webhook
+     */
+    private static boolean isOutdated(WooProduct wooProduct, Product product) {
+        if (wooProduct.getDateModified() == null || product.getWooModifiedAt() == null) {
+            return false;
+        }
+        return LocalDateTime.parse(wooProduct.getDateModified(), ISO_FORMATTER).isBefore(product.getWooModifiedAt());
+    }
 
-            if (wooVariation.getDateCreated() != null) {
-                variation.setCreatedAt(LocalDateTime.parse(
-                        wooVariation.getDateCreated(), ISO_FORMATTER));
-            }
-            if (wooVariation.getDateModified() != null) {
-                variation.setModifiedAt(LocalDateTime.parse(
-                        wooVariation.getDateModified(), ISO_FORMATTER));
-            }
+    private static long hash(WooProduct wooProduct) {
+        return SyncHash.create()
+                .add(wooProduct.getName())
+                .add(wooProduct.getSlug())
+                .add(wooProduct.getSku())
+                .add(wooProduct.getPrice())
+                .add(wooProduct.getRegularPrice())
+                .add(wooProduct.getSalePrice())
+                .add(wooProduct.getDescription())
+                .add(wooProduct.getShortDescription())
+                .add(wooProduct.getType())
+                .add(wooProduct.getStatus())
+                .add(wooProduct.getDateCreated())
+                .add(wooProduct.getDateModified())
+                .value();
+    }
 
-            variation.setLastSyncedAt(LocalDateTime.now());
+    private long hash(WooProductVariation wooVariation) {
+        return SyncHash.create()
+                .add(wooVariation.getSku())
+                .add(wooVariation.getPrice())
+                .add(wooVariation.getRegularPrice())
+                .add(wooVariation.getSalePrice())
+                .add(wooVariation.getDescription())
+                .add(toJson(wooVariation.getAttributes()))
+                .add(wooVariation.getWeight())
+                .add(toJson(wooVariation.getDimensions()))
+                .add(wooVariation.getStatus())
+                .add(wooVariation.getDateCreated())
+                .add(wooVariation.getDateModified())
+                .value();
+    }
 
-            variationRepository.save(variation);
-        } else {
-            log.debug("Skipping variation {} - not modified", wooVariation.getId());
-            variation.setLastSyncedAt(LocalDateTime.now());
-            variationRepository.save(variation);
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
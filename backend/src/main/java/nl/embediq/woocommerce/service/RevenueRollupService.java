@@ -0,0 +1,154 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.entity.Order;
+import nl.embediq.woocommerce.enums.OrderStatus;
+import nl.embediq.woocommerce.event.OrderChangedEvent;
+import nl.embediq.woocommerce.repository.RevenueDailyRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps revenue_daily_rollup in step with the orders table. Callers take a
+ * snapshot before changing an order and pass it along with the saved order
+ * afterwards; the old values are subtracted and the new ones added.
+ * Every recorded change is also published as an {@link OrderChangedEvent}.
+ */
+@Service
+@Slf4j
+public class RevenueRollupService {
+
+    /**
+     * Same statement as {@link RevenueDailyRollupRepository#applyDelta}
+     */
+    private static final String APPLY_DELTA =
+            "INSERT INTO revenue_daily_rollup (rollup_date, status, order_count, revenue) " +
+            "VALUES (:date, :status, :countDelta, :revenueDelta) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "revenue = revenue + VALUES(revenue)";
+
+    @Autowired
+    private RevenueDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The values of an order that count towards the rollup
+     */
+    public record Snapshot(Long orderId, LocalDate date, OrderStatus status, BigDecimal total) {
+    }
+
+    /**
+     * The state of one order before and after a change, see {@link #recordChange}
+     */
+    public record Change(Snapshot before, Snapshot after) {
+    }
+
+    private record RollupKey(LocalDate date, OrderStatus status) {
+    }
+
+    /**
+     * Returns null for orders that are not counted (no creation date yet)
+     */
+    public Snapshot snapshot(Order order) {
+        if (order == null || order.getCreatedAt() == null || order.getStatus() == null) {
+            return null;
+        }
+        BigDecimal total = order.getTotal() != null ? order.getTotal() : BigDecimal.ZERO;
+        return new Snapshot(order.getId(), order.getCreatedAt().toLocalDate(), order.getStatus(), total);
+    }
+
+    /**
+     * Applies the difference between the old state and the saved order.
+     * Pass null as before for new orders and null as after for deletes.
+     */
+    @Transactional
+    public void recordChange(Snapshot before, Order after) {
+        Long orderId = after != null ? after.getId() : before != null ? before.orderId() : null;
+        eventPublisher.publishEvent(new OrderChangedEvent(orderId));
+
+        Snapshot current = snapshot(after);
+        if (Objects.equals(before, current)) {
+            return;
+        }
+
+        if (before != null) {
+            rollupRepository.applyDelta(before.date(), before.status().name(), -1, before.total().negate());
+        }
+        if (current != null) {
+            rollupRepository.applyDelta(current.date(), current.status().name(), 1, current.total());
+        }
+
+        log.debug("Revenue rollup updated: {} -> {}", before, current);
+    }
+
+    /**
+     * Applies a batch of changes, e.g. a synced page of orders. Deltas for the
+     * same day and status are summed first so each rollup row is written once.
+     *
+     * <p>Has no transaction of its own and writes through JDBC, so a failure
+     * does not mark the caller's transaction rollback-only. OrderBatchWriter
+     * relies on that to undo a failed page with a savepoint and retry its
+     * orders one by one.</p>
+     */
+    public void recordChanges(Collection<Change> changes) {
+        Map<RollupKey, BigDecimal> revenueDeltas = new LinkedHashMap<>();
+        Map<RollupKey, Integer> countDeltas = new LinkedHashMap<>();
+
+        for (Change change : changes) {
+            Snapshot before = change.before();
+            Snapshot after = change.after();
+            Long orderId = after != null ? after.orderId() : before != null ? before.orderId() : null;
+            eventPublisher.publishEvent(new OrderChangedEvent(orderId));
+
+            if (Objects.equals(before, after)) {
+                continue;
+            }
+            if (before != null) {
+                RollupKey key = new RollupKey(before.date(), before.status());
+                countDeltas.merge(key, -1, Integer::sum);
+                revenueDeltas.merge(key, before.total().negate(), BigDecimal::add);
+            }
+            if (after != null) {
+                RollupKey key = new RollupKey(after.date(), after.status());
+                countDeltas.merge(key, 1, Integer::sum);
+                revenueDeltas.merge(key, after.total(), BigDecimal::add);
+            }
+        }
+
+        List<MapSqlParameterSource> deltas = new ArrayList<>();
+        countDeltas.forEach((key, countDelta) -> {
+            BigDecimal revenueDelta = revenueDeltas.get(key);
+            if (countDelta != 0 || revenueDelta.signum() != 0) {
+                deltas.add(new MapSqlParameterSource()
+                        .addValue("date", key.date())
+                        .addValue("status", key.status().name())
+                        .addValue("countDelta", countDelta)
+                        .addValue("revenueDelta", revenueDelta));
+            }
+        });
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_DELTA, deltas.toArray(new MapSqlParameterSource[0]));
+        }
+
+        log.debug("Revenue rollup updated for {} changed orders, {} rows touched",
+                changes.size(), countDeltas.size());
+    }
+}
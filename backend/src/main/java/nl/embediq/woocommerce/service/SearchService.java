@@ -0,0 +1,117 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.entity.Customer;
+import nl.embediq.woocommerce.entity.Product;
+import nl.embediq.woocommerce.repository.CustomerRepository;
+import nl.embediq.woocommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Search for products and customers backed by the FULLTEXT indexes from V3.
+ * Queries are turned into boolean-mode prefix matches; input the index cannot
+ * answer (only very short terms) falls back to an indexed prefix LIKE.
+ */
+@Service
+@Slf4j
+public class SearchService {
+
+    /**
+     * Shorter tokens are not indexed (innodb_ft_min_token_size)
+     */
+    private static final int MIN_TERM_LENGTH = 3;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    /**
+     * Finds products by name, SKU or description, best match first,
+     * with their variations loaded
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        PageRequest pageable = PageRequest.of(0, limit);
+        if (query == null || query.isBlank()) {
+            return hydrateVariations(productRepository.findAll(pageable).getContent());
+        }
+
+        String booleanQuery = toBooleanQuery(query);
+        List<Product> products = booleanQuery != null
+                ? productRepository.searchProducts(booleanQuery, pageable)
+                : Collections.emptyList();
+
+        if (products.isEmpty()) {
+            products = productRepository.findByNameOrSkuStartingWith(query.trim(), pageable);
+        }
+        return hydrateVariations(products);
+    }
+
+    /**
+     * Finds customers by name, email or company, best match first
+     */
+    public List<Customer> searchCustomers(String query, int limit) {
+        PageRequest pageable = PageRequest.of(0, limit);
+        if (query == null || query.isBlank()) {
+            return customerRepository.findAll(pageable).getContent();
+        }
+
+        String booleanQuery = toBooleanQuery(query);
+        List<Customer> customers = booleanQuery != null
+                ? customerRepository.searchCustomers(booleanQuery, pageable)
+                : Collections.emptyList();
+
+        if (customers.isEmpty()) {
+            customers = customerRepository.findByNameOrEmailStartingWith(query.trim(), pageable);
+        }
+        return customers;
+    }
+
+    /**
+     * Turns free text into a boolean-mode query where every term is required
+     * and prefix-matched, e.g. "jan pla" becomes "+jan* +pla*". Operator
+     * characters are dropped. Returns null when no term is long enough to be
+     * in the index.
+     */
+    public static String toBooleanQuery(String query) {
+        String[] terms = query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        StringBuilder booleanQuery = new StringBuilder();
+
+        for (String term : terms) {
+            if (term.length() < MIN_TERM_LENGTH) {
+                continue;
+            }
+            if (!booleanQuery.isEmpty()) {
+                booleanQuery.append(' ');
+            }
+            booleanQuery.append('+').append(term).append('*');
+        }
+
+        return booleanQuery.isEmpty() ? null : booleanQuery.toString();
+    }
+
+    /**
+     * Loads variations for all products in one query, keeping the ranking order
+     */
+    private List<Product> hydrateVariations(List<Product> products) {
+        if (products.isEmpty()) {
+            return products;
+        }
+
+        List<Long> ids = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Long, Product> loaded = productRepository.findWithVariationsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+
+        return ids.stream()
+                .map(loaded::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
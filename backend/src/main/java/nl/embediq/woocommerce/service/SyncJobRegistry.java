@@ -0,0 +1,90 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.enums.SyncType;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The sync jobs running in this JVM, at most one per {@link SyncType}.
+ *
+ * <p>Every job carries a stop flag. The sync services check it before each
+ * page and between records; once it is set they finish the page they are
+ * writing, keep the last committed page as checkpoint and end as PAUSED.
+ * The next run of that type continues after the checkpoint.</p>
+ */
+@Service
+@Slf4j
+public class SyncJobRegistry {
+
+    private final Map<SyncType, SyncJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * A running sync and its stop flag
+     */
+    public static final class SyncJob {
+
+        private final SyncType type;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile boolean stopRequested;
+
+        private SyncJob(SyncType type) {
+            this.type = type;
+        }
+
+        public SyncType getType() {
+            return type;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public boolean isStopRequested() {
+            return stopRequested;
+        }
+    }
+
+    /**
+     * Registers a job for the type
+     *
+     * @return the job, or null when this type is already running
+     */
+    public SyncJob tryStart(SyncType type) {
+        SyncJob job = new SyncJob(type);
+        return jobs.putIfAbsent(type, job) == null ? job : null;
+    }
+
+    public void finish(SyncJob job) {
+        jobs.remove(job.getType(), job);
+    }
+
+    public boolean isRunning(SyncType type) {
+        return jobs.containsKey(type);
+    }
+
+    /**
+     * Whether the running job of this type has been asked to stop; false
+     * when the type is not run through the registry
+     */
+    public boolean isStopRequested(SyncType type) {
+        SyncJob job = jobs.get(type);
+        return job != null && job.isStopRequested();
+    }
+
+    /**
+     * @return false when no job of this type is running
+     */
+    public boolean requestStop(SyncType type) {
+        SyncJob job = jobs.get(type);
+        if (job == null) {
+            return false;
+        }
+        log.info("Stop requested for {} sync started at {}", type, job.getStartedAt());
+        job.stopRequested = true;
+        return true;
+    }
+}
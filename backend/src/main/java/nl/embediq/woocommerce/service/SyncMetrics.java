@@ -0,0 +1,94 @@
+package nl.embediq.woocommerce.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import nl.embediq.woocommerce.enums.SyncType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Sync throughput and freshness per {@link SyncType}:
+ * sync.records counts applied and failed records by source (a sync page or
+ * the work queue), so their rate is the records per second, and sync.lag is
+ * the time since the newest date_modified a sync has seen.
+ */
+@Component
+public class SyncMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<SyncType, AtomicReference<LocalDateTime>> newestModified = new EnumMap<>(SyncType.class);
+
+    @PostConstruct
+    void init() {
+        for (SyncType type : SyncType.values()) {
+            AtomicReference<LocalDateTime> newest = new AtomicReference<>();
+            newestModified.put(type, newest);
+            Gauge.builder("sync.lag", newest, SyncMetrics::lagSeconds)
+                    .description("Seconds since the newest date_modified seen by the sync")
+                    .tag("type", type.name())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Records a committed sync page
+     *
+     * @param datesModified the WooCommerce date_modified of the records on the page
+     */
+    public void recordPage(SyncType type, int synced, int failed, Stream<String> datesModified) {
+        records(type, "sync", "synced").increment(synced);
+        records(type, "sync", "failed").increment(failed);
+
+        datesModified.map(SyncMetrics::parse)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .ifPresent(modified -> newestModified.get(type).accumulateAndGet(modified,
+                        (current, candidate) -> current == null || candidate.isAfter(current) ? candidate : current));
+    }
+
+    /**
+     * Records a work queue item that was applied or failed
+     */
+    public void recordWorkItem(SyncType type, boolean succeeded) {
+        records(type, "work", succeeded ? "synced" : "failed").increment();
+    }
+
+    private Counter records(SyncType type, String source, String outcome) {
+        return Counter.builder("sync.records")
+                .description("Records applied from WooCommerce")
+                .tags("type", type.name(), "source", source, "outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static double lagSeconds(AtomicReference<LocalDateTime> newest) {
+        LocalDateTime modified = newest.get();
+        return modified != null ? Duration.between(modified, LocalDateTime.now()).toMillis() / 1000.0 : Double.NaN;
+    }
+
+    private static LocalDateTime parse(String dateModified) {
+        if (dateModified == null || dateModified.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(dateModified, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package nl.embediq.woocommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.SyncResult;
+import nl.embediq.woocommerce.entity.Customer;
+import nl.embediq.woocommerce.enums.SyncStatusEnum;
+import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.event.CustomerPageSyncedEvent;
+import nl.embediq.woocommerce.repository.CustomerRepository;
+import nl.embediq.woocommerce.repository.SyncStatusRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the product, customer and order syncs for the scheduler and the manual
+ * trigger. Each {@link SyncType} runs at most once at a time; a type that is
+ * already running is skipped instead of started a second time.
+ *
+ * <p>Products and customers do not depend on each other and are synced in
+ * parallel. The order sync starts alongside them and only waits when a page
+ * references registered customers that are not stored yet; it looks again
+ * after every committed customer page until the customer sync has finished.
+ * A full cycle therefore takes about as long as its longest stream.</p>
+ *
+ * <p>Running jobs are tracked in the {@link SyncJobRegistry}, which is also
+ * where they are stopped. A full cycle skips types that are PAUSED until
+ * they are resumed explicitly.</p>
+ */
+@Service
+@Slf4j
+public class SyncOrchestrator {
+
+    /**
+     * Upper bound on a single wait, in case a page event is missed
+     */
+    private static final long CUSTOMER_WAIT_SECONDS = 30;
+
+    @Autowired
+    private ProductSyncService productSyncService;
+
+    @Autowired
+    private CustomerSyncService customerSyncService;
+
+    @Autowired
+    private OrderSyncService orderSyncService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private SyncStatusRepository syncStatusRepository;
+
+    @Autowired
+    private SyncJobRegistry syncJobRegistry;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReentrantLock customerLock = new ReentrantLock();
+    private final Condition customersChanged = customerLock.newCondition();
+    private long customerPages;
+
+    /**
+     * Runs a full cycle and waits for it to finish. Paused types are left
+     * alone until they are resumed.
+     *
+     * @return the result per type, skipped types are left out
+     */
+    public Map<SyncType, SyncResult> runFullSync() {
+        // Claim all types before anything starts, so the order sync never
+        // sees the customer sync as finished before it has begun
+        Map<SyncType, SyncJobRegistry.SyncJob> jobs = new EnumMap<>(SyncType.class);
+        for (SyncType type : List.of(SyncType.PRODUCT, SyncType.CUSTOMER, SyncType.ORDER)) {
+            if (isPaused(type)) {
+                log.info("{} sync is paused, skipping", type);
+                continue;
+            }
+            SyncJobRegistry.SyncJob job = tryStart(type);
+            if (job != null) {
+                jobs.put(type, job);
+            }
+        }
+
+        Map<SyncType, CompletableFuture<SyncResult>> futures = new EnumMap<>(SyncType.class);
+        jobs.forEach((type, job) -> futures.put(type, submit(job)));
+
+        Map<SyncType, SyncResult> results = new EnumMap<>(SyncType.class);
+        futures.forEach((type, future) -> results.put(type, future.join()));
+        return results;
+    }
+
+    /**
+     * Starts a full cycle in the background
+     *
+     * @return false when every type was already running
+     */
+    public boolean startFullSync() {
+        if (Arrays.stream(SyncType.values()).allMatch(syncJobRegistry::isRunning)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                log.info("Full sync finished: {}", runFullSync());
+            } catch (Exception e) {
+                log.error("Error during full sync", e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Continues a paused or failed sync of one type in the background, from
+     * the page after its checkpoint
+     *
+     * @return false when this type is already running
+     */
+    public boolean resume(SyncType type) {
+        SyncJobRegistry.SyncJob job = tryStart(type);
+        if (job == null) {
+            return false;
+        }
+        submit(job);
+        return true;
+    }
+
+    @EventListener
+    public void onCustomerPageSynced(CustomerPageSyncedEvent event) {
+        signalCustomersChanged();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean isPaused(SyncType type) {
+        return syncStatusRepository.findBySyncType(type)
+                .map(status -> status.getStatus() == SyncStatusEnum.PAUSED)
+                .orElse(false);
+    }
+
+    private SyncJobRegistry.SyncJob tryStart(SyncType type) {
+        SyncJobRegistry.SyncJob job = syncJobRegistry.tryStart(type);
+        if (job == null) {
+            log.info("{} sync is already running, skipping", type);
+        }
+        return job;
+    }
+
+    /**
+     * Runs a job registered with {@link #tryStart} and finishes it afterwards
+     */
+    private CompletableFuture<SyncResult> submit(SyncJobRegistry.SyncJob job) {
+        SyncType type = job.getType();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                log.info("Starting {} sync", type);
+                SyncResult result = switch (type) {
+                    case PRODUCT -> productSyncService.syncProducts();
+                    case CUSTOMER -> customerSyncService.syncCustomers();
+                    case ORDER -> orderSyncService.syncOrders(this::awaitCustomers);
+                };
+                log.info("{} sync result: {}", type, result);
+                return result;
+            } catch (Exception e) {
+                log.error("{} sync failed", type, e);
+                return new SyncResult(false, 0, 0, e.getMessage());
+            } finally {
+                syncJobRegistry.finish(job);
+                if (type == SyncType.CUSTOMER) {
+                    signalCustomersChanged();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * {@link OrderSyncService.CustomerGate} for order pages synced alongside
+     * the customer sync
+     */
+    private void awaitCustomers(Collection<Long> wooCustomerIds) {
+        Set<Long> missing = new HashSet<>(wooCustomerIds);
+        try {
+            while (!missing.isEmpty() && syncJobRegistry.isRunning(SyncType.CUSTOMER)) {
+                long seen = customerPages();
+                customerRepository.findByWooCommerceIdIn(missing).stream()
+                        .map(Customer::getWooCommerceId)
+                        .forEach(missing::remove);
+                if (missing.isEmpty()) {
+                    return;
+                }
+
+                log.debug("Waiting for {} customers of the order page", missing.size());
+                customerLock.lock();
+                try {
+                    while (customerPages == seen && syncJobRegistry.isRunning(SyncType.CUSTOMER)) {
+                        if (!customersChanged.await(CUSTOMER_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                            break;
+                        }
+                    }
+                } finally {
+                    customerLock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Sync the page anyway, its orders are saved without customer
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long customerPages() {
+        customerLock.lock();
+        try {
+            return customerPages;
+        } finally {
+            customerLock.unlock();
+        }
+    }
+
+    private void signalCustomersChanged() {
+        customerLock.lock();
+        try {
+            customerPages++;
+            customersChanged.signalAll();
+        } finally {
+            customerLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import nl.embediq.woocommerce.enums.SyncWorkState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The sync_work_items table: single records that still have to be applied,
+ * either because they failed during a sync or because a webhook delivered
+ * them. Rows are claimed with SELECT ... FOR UPDATE SKIP LOCKED, so any
+ * number of workers, in this JVM or another, each get different rows.
+ *
+ * <p>A failed item is rescheduled with exponential backoff and marked
+ * FAILED after the last attempt, where it stays visible until it is retried
+ * by hand. Enqueueing a record that is already waiting with the same payload
+ * hash keeps its schedule, so a record that fails on every sync does not
+ * reset its own backoff.</p>
+ */
+@Service
+@Slf4j
+public class SyncWorkQueue {
+
+    private static final String SELECT_ITEM =
+            "SELECT id, entity_type, remote_id, action, payload, attempts, claimed_at FROM sync_work_items ";
+
+    private static final RowMapper<WorkItem> WORK_ITEM_MAPPER = (rs, rowNum) -> new WorkItem(
+            rs.getLong("id"),
+            SyncType.valueOf(rs.getString("entity_type")),
+            rs.getLong("remote_id"),
+            SyncWorkAction.valueOf(rs.getString("action")),
+            rs.getString("payload"),
+            rs.getInt("attempts"),
+            rs.getTimestamp("claimed_at").toLocalDateTime());
+
+    @Value("${woocommerce.work.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${woocommerce.work.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${woocommerce.work.retry-max-ms:3600000}")
+    private long retryMaxMs;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Object signal = new Object();
+
+    /**
+     * A claimed item
+     *
+     * @param attempts  including the current one
+     * @param claimedAt identifies the claim, see {@link #complete}
+     */
+    public record WorkItem(long id, SyncType entityType, long remoteId, SyncWorkAction action,
+                           String payload, int attempts, LocalDateTime claimedAt) {
+    }
+
+    /**
+     * Adds a record, or makes an existing item for it due again when its
+     * payload hash changed or it has completed since
+     *
+     * @param payload the record as JSON, or null to fetch it when processed
+     */
+    public void enqueue(SyncType entityType, long remoteId, SyncWorkAction action, String payload, Long payloadHash) {
+        Timestamp now = now();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("entityType", entityType.name())
+                .addValue("remoteId", remoteId)
+                .addValue("action", action.name())
+                .addValue("payload", payload)
+                .addValue("payloadHash", payloadHash)
+                .addValue("pending", SyncWorkState.PENDING.name())
+                .addValue("now", now);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Map<String, Object>> existing = jdbcTemplate.queryForList(
+                    "SELECT id, payload_hash, state FROM sync_work_items " +
+                    "WHERE entity_type = :entityType AND remote_id = :remoteId AND action = :action FOR UPDATE",
+                    params);
+
+            if (existing.isEmpty()) {
+                try {
+                    jdbcTemplate.update("INSERT INTO sync_work_items (entity_type, remote_id, action, payload, " +
+                            "payload_hash, state, attempts, next_attempt_at, created_at, updated_at) " +
+                            "VALUES (:entityType, :remoteId, :action, :payload, :payloadHash, :pending, 0, " +
+                            ":now, :now, :now)", params);
+                    return;
+                } catch (DuplicateKeyException e) {
+                    // Inserted concurrently, make that one due again below
+                }
+            } else {
+                Map<String, Object> row = existing.get(0);
+                Long currentHash = row.get("payload_hash") != null ? ((Number) row.get("payload_hash")).longValue() : null;
+                if (!SyncWorkState.DONE.name().equals(row.get("state")) && Objects.equals(currentHash, payloadHash)) {
+                    return;
+                }
+            }
+
+            jdbcTemplate.update("UPDATE sync_work_items SET payload = :payload, payload_hash = :payloadHash, " +
+                    "state = :pending, attempts = 0, next_attempt_at = :now, claimed_at = NULL, last_error = NULL, " +
+                    "updated_at = :now " +
+                    "WHERE entity_type = :entityType AND remote_id = :remoteId AND action = :action", params);
+        });
+
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Claims up to limit due items for the calling worker
+     */
+    public List<WorkItem> claim(int limit) {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = now();
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM sync_work_items WHERE state = :pending AND next_attempt_at <= :now " +
+                    "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+                    Map.of("pending", SyncWorkState.PENDING.name(), "now", now, "limit", limit),
+                    Long.class);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+
+            jdbcTemplate.update("UPDATE sync_work_items SET state = :processing, claimed_at = :now, " +
+                            "attempts = attempts + 1, updated_at = :now WHERE id IN (:ids)",
+                    Map.of("processing", SyncWorkState.PROCESSING.name(), "now", now, "ids", ids));
+            return jdbcTemplate.query(SELECT_ITEM + "WHERE id IN (:ids) ORDER BY next_attempt_at",
+                    Map.of("ids", ids), WORK_ITEM_MAPPER);
+        });
+    }
+
+    /**
+     * Marks a claimed item as done. Does nothing when the item was enqueued
+     * again while it was being processed; it is then processed once more.
+     */
+    public void complete(WorkItem item) {
+        jdbcTemplate.update("UPDATE sync_work_items SET state = :done, payload = NULL, last_error = NULL, " +
+                        "updated_at = :now WHERE id = :id AND state = :processing AND claimed_at = :claimedAt",
+                claimParams(item)
+                        .addValue("done", SyncWorkState.DONE.name())
+                        .addValue("now", now()));
+    }
+
+    /**
+     * Reschedules a claimed item with backoff, or marks it FAILED after the
+     * last attempt. Retries fetch the record from WooCommerce again.
+     */
+    public void fail(WorkItem item, Exception error) {
+        boolean lastAttempt = item.attempts() >= maxAttempts;
+        LocalDateTime nextAttempt = LocalDateTime.now().plus(backoff(item.attempts()));
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+
+        jdbcTemplate.update("UPDATE sync_work_items SET state = :state, next_attempt_at = :nextAttempt, " +
+                        "payload = NULL, last_error = :error, updated_at = :now " +
+                        "WHERE id = :id AND state = :processing AND claimed_at = :claimedAt",
+                claimParams(item)
+                        .addValue("state", (lastAttempt ? SyncWorkState.FAILED : SyncWorkState.PENDING).name())
+                        .addValue("nextAttempt", Timestamp.valueOf(nextAttempt))
+                        .addValue("error", message.length() > 1000 ? message.substring(0, 1000) : message)
+                        .addValue("now", now()));
+
+        if (lastAttempt) {
+            log.error("Giving up on {} {} {} after {} attempts: {}",
+                    item.action(), item.entityType(), item.remoteId(), item.attempts(), message);
+        } else {
+            log.warn("{} {} {} failed (attempt {}), retrying at {}: {}",
+                    item.action(), item.entityType(), item.remoteId(), item.attempts(), nextAttempt, message);
+        }
+    }
+
+    /**
+     * Makes items claimed by a worker that died (e.g. a JVM restart) due again
+     *
+     * @return the number of items released
+     */
+    public int releaseStale(Duration claimTimeout) {
+        return jdbcTemplate.update("UPDATE sync_work_items SET state = :pending, claimed_at = NULL " +
+                        "WHERE state = :processing AND claimed_at < :cutoff",
+                Map.of("pending", SyncWorkState.PENDING.name(),
+                        "processing", SyncWorkState.PROCESSING.name(),
+                        "cutoff", Timestamp.valueOf(LocalDateTime.now().minus(claimTimeout))));
+    }
+
+    public int purgeDone(Duration retention) {
+        return jdbcTemplate.update("DELETE FROM sync_work_items WHERE state = :done AND updated_at < :cutoff",
+                Map.of("done", SyncWorkState.DONE.name(),
+                        "cutoff", Timestamp.valueOf(LocalDateTime.now().minus(retention))));
+    }
+
+    /**
+     * Makes all FAILED items due again with a fresh set of attempts
+     */
+    public int retryFailed() {
+        int count = jdbcTemplate.update("UPDATE sync_work_items SET state = :pending, attempts = 0, " +
+                        "next_attempt_at = :now, updated_at = :now WHERE state = :failed",
+                Map.of("pending", SyncWorkState.PENDING.name(),
+                        "failed", SyncWorkState.FAILED.name(),
+                        "now", now()));
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        return count;
+    }
+
+    /**
+     * Blocks until something is enqueued or the timeout passes
+     */
+    public void awaitWork(long timeoutMs) throws InterruptedException {
+        synchronized (signal) {
+            signal.wait(timeoutMs);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = retryBaseMs << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, retryMaxMs);
+        // Up to 20% jitter so items that failed together do not retry together
+        return Duration.ofMillis(delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1));
+    }
+
+    private static MapSqlParameterSource claimParams(WorkItem item) {
+        return new MapSqlParameterSource()
+                .addValue("id", item.id())
+                .addValue("processing", SyncWorkState.PROCESSING.name())
+                .addValue("claimedAt", Timestamp.valueOf(item.claimedAt()));
+    }
+
+    private static Timestamp now() {
+        // DATETIME(6) keeps microseconds, claims are compared by value
+        return Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+}
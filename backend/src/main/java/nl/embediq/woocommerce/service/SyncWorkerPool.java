@@ -0,0 +1,175 @@
+package nl.embediq.woocommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.WooCustomer;
+import nl.embediq.woocommerce.dto.WooOrder;
+import nl.embediq.woocommerce.dto.WooProduct;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Workers that apply the items of the {@link SyncWorkQueue} through the same
+ * service methods the sync and webhooks use. Each worker claims a few due
+ * items at a time, so throughput grows with woocommerce.work.workers.
+ *
+ * <p>The payload stored with an item is only used on its first attempt;
+ * retries fetch the current record from WooCommerce, so a retry never writes
+ * back an outdated version. A record WooCommerce no longer has is treated
+ * as deleted.</p>
+ */
+@Service
+@Slf4j
+public class SyncWorkerPool {
+
+    private static final int CLAIM_SIZE = 5;
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(10);
+    private static final Duration DONE_RETENTION = Duration.ofDays(7);
+
+    @Value("${woocommerce.work.workers:4}")
+    private int workerCount;
+
+    @Value("${woocommerce.work.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    @Autowired
+    private WooCommerceClient wooCommerceClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderSyncService orderSyncService;
+
+    @Autowired
+    private CustomerSyncService customerSyncService;
+
+    @Autowired
+    private ProductSyncService productSyncService;
+
+    @Autowired
+    private SyncMetrics syncMetrics;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    @PostConstruct
+    void start() {
+        for (int i = 1; i <= workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("sync-worker-" + i).start(this::run));
+        }
+        log.info("Started {} sync workers", workerCount);
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Releases items of workers that died and removes old completed items
+     */
+    @Scheduled(fixedDelayString = "${woocommerce.work.maintenance-interval-ms:60000}")
+    public void maintain() {
+        int released = syncWorkQueue.releaseStale(CLAIM_TIMEOUT);
+        if (released > 0) {
+            log.warn("Released {} sync work items claimed more than {} ago", released, CLAIM_TIMEOUT);
+        }
+        syncWorkQueue.purgeDone(DONE_RETENTION);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<SyncWorkQueue.WorkItem> items = syncWorkQueue.claim(CLAIM_SIZE);
+                if (items.isEmpty()) {
+                    syncWorkQueue.awaitWork(pollIntervalMs);
+                    continue;
+                }
+                items.forEach(this::process);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("Sync worker failed to claim work", e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(SyncWorkQueue.WorkItem item) {
+        try {
+            apply(item);
+            syncWorkQueue.complete(item);
+            syncMetrics.recordWorkItem(item.entityType(), true);
+        } catch (Exception e) {
+            syncWorkQueue.fail(item, e);
+            syncMetrics.recordWorkItem(item.entityType(), false);
+        }
+    }
+
+    private void apply(SyncWorkQueue.WorkItem item) throws IOException {
+        long id = item.remoteId();
+        log.debug("Applying {} {} {} (attempt {})", item.action(), item.entityType(), id, item.attempts());
+
+        boolean upsert = item.action() == SyncWorkAction.UPSERT;
+        switch (item.entityType()) {
+            case ORDER -> {
+                WooOrder wooOrder = upsert ? record(item, WooOrder.class, wooCommerceClient::getOrder) : null;
+                if (wooOrder != null) {
+                    orderSyncService.applyOrder(wooOrder);
+                } else {
+                    orderSyncService.deleteOrder(id);
+                }
+            }
+            case CUSTOMER -> {
+                WooCustomer wooCustomer = upsert ? record(item, WooCustomer.class, wooCommerceClient::getCustomer) : null;
+                if (wooCustomer != null) {
+                    customerSyncService.processCustomer(wooCustomer);
+                } else {
+                    // Kept, invoices of its orders still refer to it
+                    log.info("Customer {} was deleted in WooCommerce, keeping it", id);
+                }
+            }
+            case PRODUCT -> {
+                if (item.action() == SyncWorkAction.VARIATIONS) {
+                    productSyncService.syncProductVariations(id);
+                    return;
+                }
+                WooProduct wooProduct = upsert ? record(item, WooProduct.class, wooCommerceClient::getProduct) : null;
+                if (wooProduct != null) {
+                    productSyncService.processProduct(wooProduct);
+                } else {
+                    productSyncService.deleteProduct(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * The delivered payload on the first attempt, otherwise the current record
+     */
+    private <T> T record(SyncWorkQueue.WorkItem item, Class<T> type, LongFunction<T> fetch)
+            throws IOException {
+        if (item.payload() != null && item.attempts() == 1) {
+            return objectMapper.readValue(item.payload(), type);
+        }
+        return fetch.apply(item.remoteId());
+    }
+}
@@ -0,0 +1,56 @@
+package nl.embediq.woocommerce.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * Writes a table row by row to a stream, without keeping earlier rows.
+ * Values may be strings, numbers, dates or null.
+ */
+public interface TableWriter {
+
+    void row(Object... values) throws IOException;
+
+    /**
+     * Completes the file; the underlying stream stays open
+     */
+    void finish() throws IOException;
+
+    enum Format {
+        CSV("text/csv;charset=UTF-8", CsvTableWriter::new),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", XlsxTableWriter::new);
+
+        private final String contentType;
+        private final Function<OutputStream, TableWriter> factory;
+
+        Format(String contentType, Function<OutputStream, TableWriter> factory) {
+            this.contentType = contentType;
+            this.factory = factory;
+        }
+
+        /**
+         * @throws IllegalArgumentException for anything but csv and xlsx
+         */
+        public static Format parse(String format) {
+            for (Format candidate : values()) {
+                if (candidate.name().equalsIgnoreCase(format)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Onbekend exportformaat: " + format);
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return name().toLowerCase();
+        }
+
+        public TableWriter open(OutputStream out) {
+            return factory.apply(out);
+        }
+    }
+}
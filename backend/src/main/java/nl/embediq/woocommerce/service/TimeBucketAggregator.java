@@ -0,0 +1,181 @@
+package nl.embediq.woocommerce.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sums amounts and counts into consecutive time buckets in a single pass.
+ * Each value is mapped straight to an array index, and amounts are kept as
+ * cents in a long so no BigDecimal is created per row.
+ *
+ * <p>Not thread-safe; create one per calculation.</p>
+ */
+public final class TimeBucketAggregator {
+
+    private enum Unit { DAY, WEEK, MONTH, YEAR }
+
+    private final Unit unit;
+    private final LocalDate start;
+    private final String[] labels;
+    private final long[] cents;
+    private final long[] counts;
+
+    private TimeBucketAggregator(Unit unit, LocalDate start, String[] labels) {
+        this.unit = unit;
+        this.start = start;
+        this.labels = labels;
+        this.cents = new long[labels.length];
+        this.counts = new long[labels.length];
+    }
+
+    /**
+     * One bucket per day, ending with today. Labels are ISO dates.
+     */
+    public static TimeBucketAggregator lastDays(LocalDate today, int days) {
+        LocalDate start = today.minusDays(days - 1);
+        String[] labels = new String[days];
+        for (int i = 0; i < days; i++) {
+            labels[i] = start.plusDays(i).toString();
+        }
+        return new TimeBucketAggregator(Unit.DAY, start, labels);
+    }
+
+    /**
+     * 7-day blocks counted from January 1st, labelled "Week 1" to "Week 53".
+     * The last block only holds the remaining day(s) of the year.
+     */
+    public static TimeBucketAggregator weeksOfYear(int year) {
+        LocalDate firstDayOfYear = LocalDate.of(year, 1, 1);
+        LocalDate lastDayOfYear = LocalDate.of(year, 12, 31);
+        int weeksInYear = (int) Math.min(ChronoUnit.WEEKS.between(firstDayOfYear, lastDayOfYear) + 1, 53);
+
+        String[] labels = new String[weeksInYear];
+        for (int i = 0; i < weeksInYear; i++) {
+            labels[i] = "Week " + (i + 1);
+        }
+        return new TimeBucketAggregator(Unit.WEEK, firstDayOfYear, labels);
+    }
+
+    /**
+     * The twelve months of a year, labelled with the given names
+     */
+    public static TimeBucketAggregator monthsOfYear(int year, String[] monthNames) {
+        return new TimeBucketAggregator(Unit.MONTH, LocalDate.of(year, 1, 1), monthNames.clone());
+    }
+
+    /**
+     * One bucket per month, ending with the current month. Labels are "yyyy-MM".
+     */
+    public static TimeBucketAggregator lastMonths(LocalDate today, int months) {
+        LocalDate start = today.withDayOfMonth(1).minusMonths(months - 1);
+        String[] labels = new String[months];
+        for (int i = 0; i < months; i++) {
+            labels[i] = start.plusMonths(i).toString().substring(0, 7);
+        }
+        return new TimeBucketAggregator(Unit.MONTH, start, labels);
+    }
+
+    /**
+     * One bucket per calendar year, labelled with the year
+     */
+    public static TimeBucketAggregator years(int firstYear, int count) {
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = String.valueOf(firstYear + i);
+        }
+        return new TimeBucketAggregator(Unit.YEAR, LocalDate.of(firstYear, 1, 1), labels);
+    }
+
+    /**
+     * First day covered by the buckets
+     */
+    public LocalDate getStartDate() {
+        return start;
+    }
+
+    /**
+     * Last day covered by the buckets
+     */
+    public LocalDate getEndDate() {
+        return switch (unit) {
+            case DAY -> start.plusDays(labels.length - 1);
+            case WEEK -> LocalDate.of(start.getYear(), 12, 31);
+            case MONTH -> start.plusMonths(labels.length).minusDays(1);
+            case YEAR -> start.plusYears(labels.length).minusDays(1);
+        };
+    }
+
+    /**
+     * Adds one row. Dates outside the buckets are ignored.
+     */
+    public void add(LocalDate date, BigDecimal amount) {
+        add(date, toCents(amount), 1);
+    }
+
+    /**
+     * Adds a pre-aggregated value, e.g. a daily rollup row
+     */
+    public void add(LocalDate date, long amountCents, long count) {
+        if (date == null) {
+            return;
+        }
+        int index = indexOf(date);
+        if (index >= 0) {
+            cents[index] += amountCents;
+            counts[index] += count;
+        }
+    }
+
+    public Map<String, BigDecimal> getAmounts() {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            result.put(labels[i], BigDecimal.valueOf(cents[i], 2));
+        }
+        return result;
+    }
+
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            result.put(labels[i], counts[i]);
+        }
+        return result;
+    }
+
+    public BigDecimal getTotalAmount() {
+        long total = 0;
+        for (long value : cents) {
+            total += value;
+        }
+        return BigDecimal.valueOf(total, 2);
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long value : counts) {
+            total += value;
+        }
+        return total;
+    }
+
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private int indexOf(LocalDate date) {
+        long index = switch (unit) {
+            case DAY -> ChronoUnit.DAYS.between(start, date);
+            case WEEK -> date.getYear() == start.getYear() ? (date.getDayOfYear() - 1) / 7 : -1;
+            case MONTH -> (date.getYear() - start.getYear()) * 12L + date.getMonthValue() - start.getMonthValue();
+            case YEAR -> date.getYear() - start.getYear();
+        };
+        return index >= 0 && index < labels.length ? (int) index : -1;
+    }
+}
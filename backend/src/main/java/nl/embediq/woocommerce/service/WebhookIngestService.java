@@ -0,0 +1,131 @@
+package nl.embediq.woocommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Receives WooCommerce webhook deliveries and hands them to the sync workers.
+ *
+ * <p>Deliveries are verified against the webhook secret, deduplicated on
+ * resource, id and date_modified, and stored as items of the
+ * {@link SyncWorkQueue}. The {@link SyncWorkerPool} applies them through the
+ * same code the sync uses and retries them with backoff, so a delivery is
+ * not lost when applying it fails or the application restarts.</p>
+ */
+@Service
+@Slf4j
+public class WebhookIngestService {
+
+    public enum Outcome {
+        QUEUED,
+        DUPLICATE,
+        IGNORED
+    }
+
+    @Value("${woocommerce.webhook.secret:}")
+    private String secret;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SyncWorkQueue syncWorkQueue;
+
+    private final Cache<String, Boolean> seen = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .maximumSize(10_000)
+            .build();
+
+    /**
+     * Checks the base64 HMAC-SHA256 of the body that WooCommerce sends in
+     * X-WC-Webhook-Signature. Always false while no secret is configured.
+     */
+    public boolean isSignatureValid(byte[] body, String signature) {
+        if (secret == null || secret.isEmpty() || signature == null) {
+            return false;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = Base64.getEncoder().encode(mac.doFinal(body));
+            return MessageDigest.isEqual(expected, signature.trim().getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            log.error("Cannot verify webhook signature", e);
+            return false;
+        }
+    }
+
+    /**
+     * Queues a verified delivery
+     *
+     * @param topic the X-WC-Webhook-Topic header, e.g. order.updated
+     */
+    public Outcome enqueue(String topic, byte[] body) throws IOException {
+        String[] parts = topic.split("\\.", 2);
+        SyncType entityType = parts.length == 2 ? entityType(parts[0]) : null;
+        if (entityType == null) {
+            log.debug("Ignoring webhook topic {}", topic);
+            return Outcome.IGNORED;
+        }
+        boolean deleted = "deleted".equals(parts[1]);
+
+        JsonNode payload = objectMapper.readTree(body);
+        long id = payload.path("id").asLong();
+        if (id <= 0) {
+            log.debug("Ignoring {} webhook without id", topic);
+            return Outcome.IGNORED;
+        }
+
+        String key = deleted
+                ? parts[0] + ":" + id + ":deleted"
+                : parts[0] + ":" + id + ":" + payload.path("date_modified").asText();
+        if (seen.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            log.debug("Skipping duplicate webhook {}", key);
+            return Outcome.DUPLICATE;
+        }
+
+        try {
+            long parentId = payload.path("parent_id").asLong();
+            if (entityType == SyncType.PRODUCT && parentId > 0) {
+                // Variations are delivered as product webhooks of their own
+                syncWorkQueue.enqueue(SyncType.PRODUCT, parentId, SyncWorkAction.VARIATIONS, null, null);
+            } else if (deleted) {
+                syncWorkQueue.enqueue(entityType, id, SyncWorkAction.DELETE, null, null);
+            } else {
+                String json = new String(body, StandardCharsets.UTF_8);
+                syncWorkQueue.enqueue(entityType, id, SyncWorkAction.UPSERT, json, SyncHash.create().add(json).value());
+            }
+        } catch (RuntimeException e) {
+            // Let a redelivery try again
+            seen.invalidate(key);
+            throw e;
+        }
+        return Outcome.QUEUED;
+    }
+
+    private static SyncType entityType(String resource) {
+        return switch (resource) {
+            case "order" -> SyncType.ORDER;
+            case "customer" -> SyncType.CUSTOMER;
+            case "product" -> SyncType.PRODUCT;
+            default -> null;
+        };
+    }
+}
@@ -1,11 +1,18 @@
 package nl.embediq.woocommerce.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.WooCustomer;
 import nl.embediq.woocommerce.dto.WooOrder;
+import nl.embediq.woocommerce.dto.WooPage;
 import nl.embediq.woocommerce.dto.WooProduct;
 import nl.embediq.woocommerce.dto.WooProductVariation;
 import nl.embediq.woocommerce.exception.WooCommerceApiException;
+import nl.embediq.woocommerce.exception.WooCommerceRateLimitException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
@@ -13,15 +20,19 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
-import java.util.Base64;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -30,68 +41,138 @@ public class WooCommerceClient {
     @Autowired
     private RestTemplate wooCommerceRestTemplate;
 
-    @Value("${woocommerce.url}")
-    private String baseUrl;
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    @Value("${woocommerce.consumer-key}")
-    private String consumerKey;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    @Value("${woocommerce.consumer-secret}")
-    private String consumerSecret;
+    @Value("${woocommerce.url}")
+    private String baseUrl;
 
     @Value("${woocommerce.sync.per-page}")
     private int perPage;
 
-    public List<WooOrder> getOrders(int page, LocalDateTime modifiedAfter) {
-        try {
-            UriComponentsBuilder builder = UriComponentsBuilder
-                    .fromHttpUrl(baseUrl + "/wp-json/wc/v3/orders")
-                    .queryParam("page", page)
-                    .queryParam("per_page", perPage);
+    /**
+     * Initial spacing between requests; the limiter adapts from there
+     */
+    @Value("${woocommerce.sync.rate-limit-ms}")
+    private long rateLimitMs;
 
-            if (modifiedAfter != null) {
-                builder.queryParam("modified_after",
-                        modifiedAfter.format(DateTimeFormatter.ISO_DATE_TIME));
-            }
+    @Value("${woocommerce.sync.max-requests-per-second:10}")
+    private double maxRequestsPerSecond;
 
-            // Default ordering is by date_created DESC
-            // Valid orderby values: date, id, include, title, slug
-            builder.queryParam("orderby", "date")
-                    .queryParam("order", "asc");
+    @Value("${woocommerce.sync.max-retries:5}")
+    private int maxRetries;
 
-            String url = builder.toUriString();
+    /**
+     * Maximum number of requests in flight, shared by all syncs
+     */
+    @Value("${woocommerce.sync.fetch-concurrency:3}")
+    private int fetchConcurrency;
 
-            HttpHeaders headers = createAuthHeaders();
-            HttpEntity<?> entity = new HttpEntity<>(headers);
+    /**
+     * The maximum WooCommerce allows per page
+     */
+    private static final int VARIATIONS_PER_PAGE = 100;
 
-            log.debug("Fetching orders from WooCommerce: page={}, modifiedAfter={}",
-                    page, modifiedAfter);
+    private static final double MIN_REQUESTS_PER_SECOND = 0.2;
+    private static final long SLOW_RESPONSE_MS = 5000;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
 
-            ResponseEntity<WooOrder[]> response = wooCommerceRestTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    WooOrder[].class
-            );
+    private Semaphore permits;
 
-            List<WooOrder> orders = Arrays.asList(response.getBody());
-            log.debug("Received {} orders from page {}", orders.size(), page);
+    private AdaptiveRateLimiter rateLimiter;
 
-            return orders;
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(Math.max(1, fetchConcurrency), true);
 
-        } catch (Exception e) {
-            log.error("Error fetching orders from WooCommerce: page={}", page, e);
-            throw new WooCommerceApiException("Failed to fetch orders", e);
+        double initialRate = rateLimitMs > 0 ? 1000.0 / rateLimitMs : maxRequestsPerSecond;
+        rateLimiter = new AdaptiveRateLimiter(initialRate, MIN_REQUESTS_PER_SECOND,
+                maxRequestsPerSecond, Math.max(1, fetchConcurrency), SLOW_RESPONSE_MS);
+    }
+
+    public WooPage<WooOrder> getOrders(int page, LocalDateTime modifiedAfter) {
+        // Valid orderby values: date, id, include, title, slug
+        return fetchPage("orders", page, modifiedAfter, "date", WooOrder.class);
+    }
+
+    public WooPage<WooCustomer> getCustomers(int page, LocalDateTime modifiedAfter) {
+        return fetchPage("customers", page, modifiedAfter, "id", WooCustomer.class);
+    }
+
+    public WooPage<WooProduct> getProducts(int page, LocalDateTime modifiedAfter) {
+        return fetchPage("products", page, modifiedAfter, "id", WooProduct.class);
+    }
+
+    /**
+     * Iterates all order pages from startPage on, prefetching ahead
+     */
+    public WooPagePrefetcher<WooOrder> prefetchOrders(int startPage, LocalDateTime modifiedAfter) {
+        return new WooPagePrefetcher<>(page -> getOrders(page, modifiedAfter), startPage, perPage, fetchConcurrency);
+    }
+
+    public WooPagePrefetcher<WooCustomer> prefetchCustomers(int startPage, LocalDateTime modifiedAfter) {
+        return new WooPagePrefetcher<>(page -> getCustomers(page, modifiedAfter), startPage, perPage, fetchConcurrency);
+    }
+
+    public WooPagePrefetcher<WooProduct> prefetchProducts(int startPage, LocalDateTime modifiedAfter) {
+        return new WooPagePrefetcher<>(page -> getProducts(page, modifiedAfter), startPage, perPage, fetchConcurrency);
+    }
+
+    /**
+     * @return the order, or null when WooCommerce does not know it (anymore)
+     */
+    public WooOrder getOrder(long id) {
+        return fetchOne("orders", id, WooOrder.class);
+    }
+
+    public WooCustomer getCustomer(long id) {
+        return fetchOne("customers", id, WooCustomer.class);
+    }
+
+    public WooProduct getProduct(long id) {
+        return fetchOne("products", id, WooProduct.class);
+    }
+
+    /**
+     * All variations of a product. The pages after the first are fetched
+     * concurrently within the shared request limits.
+     */
+    public List<WooProductVariation> getProductVariations(Long productId) {
+        String resource = "products/" + productId + "/variations";
+        List<WooProductVariation> variations = new ArrayList<>();
+        try (WooPagePrefetcher<WooProductVariation> pages = new WooPagePrefetcher<>(
+                page -> fetchPage(resource, page, null, "id", VARIATIONS_PER_PAGE, WooProductVariation.class),
+                1, VARIATIONS_PER_PAGE, fetchConcurrency)) {
+            while (pages.hasNext()) {
+                pages.next().items().forEach(variations::add);
+            }
         }
+
+        log.debug("Retrieved {} variations for product {}", variations.size(), productId);
+        return variations;
+    }
+
+    /**
+     * Fetches one page as raw JSON; records are bound one at a time when the
+     * page is iterated, see {@link JsonArrayRecords}
+     */
+    private <T> WooPage<T> fetchPage(String resource, int page, LocalDateTime modifiedAfter,
+                                     String orderBy, Class<T> type) {
+        return fetchPage(resource, page, modifiedAfter, orderBy, perPage, type);
     }
 
-    public List<WooCustomer> getCustomers(int page, LocalDateTime modifiedAfter) {
+    private <T> WooPage<T> fetchPage(String resource, int page, LocalDateTime modifiedAfter,
+                                     String orderBy, int pageSize, Class<T> type) {
         try {
             UriComponentsBuilder builder = UriComponentsBuilder
-                    .fromHttpUrl(baseUrl + "/wp-json/wc/v3/customers")
+                    .fromHttpUrl(baseUrl + "/wp-json/wc/v3/" + resource)
                     .queryParam("page", page)
-                    .queryParam("per_page", perPage)
-                    .queryParam("orderby", "id")
+                    .queryParam("per_page", pageSize)
+                    .queryParam("orderby", orderBy)
                     .queryParam("order", "asc");
 
             if (modifiedAfter != null) {
@@ -99,94 +180,170 @@ public class WooCommerceClient {
                         modifiedAfter.format(DateTimeFormatter.ISO_DATE_TIME));
             }
 
-            String url = builder.toUriString();
-
-            HttpHeaders headers = createAuthHeaders();
-            HttpEntity<?> entity = new HttpEntity<>(headers);
+            log.debug("Fetching {} from WooCommerce: page={}, modifiedAfter={}",
+                    resource, page, modifiedAfter);
 
-            log.debug("Fetching customers from WooCommerce: page={}", page);
+            String endpoint = resource.replaceAll("/\\d+", "/{id}");
+            ResponseEntity<byte[]> response = exchange(endpoint, builder.toUriString(), byte[].class);
 
-            ResponseEntity<WooCustomer[]> response = wooCommerceRestTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    WooCustomer[].class
-            );
+            JsonArrayRecords<T> items = JsonArrayRecords.of(objectMapper.readerFor(type), response.getBody());
+            DistributionSummary.builder("woocommerce.page.records")
+                    .description("Records per WooCommerce page")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .record(items.size());
+            HttpHeaders headers = response.getHeaders();
+            int totalPages = parseHeader(headers, "X-WP-TotalPages");
+            long totalItems = parseHeader(headers, "X-WP-Total");
 
-            List<WooCustomer> customers = Arrays.asList(response.getBody());
-            log.debug("Received {} customers from page {}", customers.size(), page);
+            log.debug("Received {} {} from page {}/{}", items.size(), resource, page, totalPages);
 
-            return customers;
+            return new WooPage<>(page, items.size(), items, totalPages, totalItems);
 
+        } catch (WooCommerceApiException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Error fetching customers from WooCommerce: page={}", page, e);
-            throw new WooCommerceApiException("Failed to fetch customers", e);
+            log.error("Error fetching {} from WooCommerce: page={}", resource, page, e);
+            throw new WooCommerceApiException("Failed to fetch " + resource, e);
         }
     }
 
-    public List<WooProduct> getProducts(int page, LocalDateTime modifiedAfter) {
-        StringBuilder url = new StringBuilder(String.format(
-                "%s/wp-json/wc/v3/products?page=%d&per_page=100&orderby=id&order=asc",
-                baseUrl, page
-        ));
-
-        if (modifiedAfter != null) {
-            String modifiedAfterStr = modifiedAfter.format(DateTimeFormatter.ISO_DATE_TIME);
-            url.append("&modified_after=").append(modifiedAfterStr);
+    /**
+     * Fetches a single record, null on 404
+     */
+    private <T> T fetchOne(String resource, long id, Class<T> type) {
+        String url = String.format("%s/wp-json/wc/v3/%s/%d", baseUrl, resource, id);
+        try {
+            byte[] body = exchange(resource + "/{id}", url, byte[].class).getBody();
+            return body != null && body.length > 0 ? objectMapper.readValue(body, type) : null;
+        } catch (WooCommerceApiException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new WooCommerceApiException("Invalid JSON response", e);
         }
+    }
 
-        try {
-            ResponseEntity<WooProduct[]> response = wooCommerceRestTemplate.exchange(
-                    url.toString(),
-                    HttpMethod.GET,
-                    new HttpEntity<>(createAuthHeaders()),
-                    WooProduct[].class
-            );
-
-            if (response.getBody() != null) {
-                log.info("Retrieved {} products from page {}", response.getBody().length, page);
-                return Arrays.asList(response.getBody());
+    /**
+     * Performs a GET within the shared concurrency and rate limits. Throttling,
+     * server errors and I/O failures are retried with jittered exponential
+     * backoff, honouring Retry-After when the server sends one.
+     *
+     * @param endpoint the resource path without ids, used to tag the metrics
+     */
+    private <T> ResponseEntity<T> exchange(String endpoint, String url, Class<T> type) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return exchangeOnce(endpoint, url, type);
+            } catch (WooCommerceRateLimitException e) {
+                rateLimiter.onThrottled(e.getRetryAfter());
+                backoff(url, attempt, e.getRetryAfter(), e);
+            } catch (WooCommerceApiException e) {
+                if (!e.isServerError()) {
+                    throw e;
+                }
+                rateLimiter.onServerError();
+                backoff(url, attempt, null, e);
+            } catch (ResourceAccessException e) {
+                rateLimiter.onServerError();
+                backoff(url, attempt, null, e);
             }
-            return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("Error fetching products from WooCommerce (page {})", page, e);
-            throw new RuntimeException("Failed to fetch products", e);
         }
     }
 
-    public List<WooProductVariation> getProductVariations(Long productId) {
-        String url = String.format(
-                "%s/wp-json/wc/v3/products/%d/variations?per_page=100",
-                baseUrl, productId
-        );
+    /**
+     * One attempt, timed per endpoint and status as woocommerce.requests.
+     * Failures without a response are tagged IO_ERROR.
+     */
+    private <T> ResponseEntity<T> exchangeOnce(String endpoint, String url, Class<T> type) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WooCommerceApiException("Interrupted while waiting for a request slot", e);
+        }
 
         try {
-            ResponseEntity<WooProductVariation[]> response = wooCommerceRestTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    new HttpEntity<>(createAuthHeaders()),
-                    WooProductVariation[].class
-            );
-
-            if (response.getBody()   != null) {
-                log.info("Retrieved {} variations for product {}",
-                        response.getBody().length, productId);
-                return Arrays.asList(response.getBody());
+            rateLimiter.acquire();
+
+            long start = System.nanoTime();
+            String status = "IO_ERROR";
+            try {
+                ResponseEntity<T> response = wooCommerceRestTemplate.exchange(
+                        url,
+                        HttpMethod.GET,
+                        HttpEntity.EMPTY,
+                        type
+                );
+                status = String.valueOf(response.getStatusCode().value());
+                rateLimiter.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+                if (response.getBody() instanceof byte[] body) {
+                    DistributionSummary.builder("woocommerce.response.size")
+                            .description("Uncompressed size of WooCommerce responses")
+                            .baseUnit("bytes")
+                            .tag("endpoint", endpoint)
+                            .register(meterRegistry)
+                            .record(body.length);
+                }
+                return response;
+            } catch (WooCommerceRateLimitException e) {
+                status = "429";
+                throw e;
+            } catch (WooCommerceApiException e) {
+                status = String.valueOf(e.getStatusCode());
+                throw e;
+            } finally {
+                Timer.builder("woocommerce.requests")
+                        .description("WooCommerce API requests, without the time spent waiting for a slot")
+                        .tags("endpoint", endpoint, "status", status)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
-            return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("Error fetching variations for product {}", productId, e);
-            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WooCommerceApiException("Interrupted while waiting for rate limit", e);
+        } finally {
+            permits.release();
         }
     }
 
-    private HttpHeaders createAuthHeaders() {
-        String auth = consumerKey + ":" + consumerSecret;
-        byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes());
-        String authHeader = "Basic " + new String(encodedAuth);
+    /**
+     * Sleeps before the next attempt, or rethrows once the retries are used up
+     */
+    private void backoff(String url, int attempt, Duration retryAfter, RuntimeException cause) {
+        if (attempt >= maxRetries) {
+            throw cause;
+        }
+
+        long capMs = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 16));
+        long delayMs = ThreadLocalRandom.current().nextLong(capMs / 2, capMs + 1);
+        if (retryAfter != null) {
+            delayMs = Math.max(delayMs, retryAfter.toMillis());
+        }
+
+        log.warn("WooCommerce request failed ({}), retry {}/{} in {} ms: {}",
+                cause.getMessage(), attempt + 1, maxRetries, delayMs, url);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", authHeader);
-        return headers;
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private static int parseHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,13 @@ package nl.embediq.woocommerce.service;
 
 import lombok.extern.slf4j.Slf4j;
 import nl.embediq.woocommerce.dto.SyncResult;
+import nl.embediq.woocommerce.enums.SyncType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.Map;
 
 @Component
 @Slf4j
@@ -19,33 +20,17 @@ import java.time.LocalDateTime;
 public class WooCommerceSyncScheduler {
 
     @Autowired
-    private CustomerSyncService customerSyncService;
-
-    @Autowired
-    private OrderSyncService orderSyncService;
-
-    @Autowired
-    private ProductSyncService productSyncService;  // ← NIEUW!
+    private SyncOrchestrator syncOrchestrator;
 
     @Scheduled(cron = "${woocommerce.sync.cron}")
     public void syncWooCommerceData() {
         log.info("=== Starting WooCommerce synchronization ===");
 
         try {
-            // First sync products (orders kunnen naar SKU's refereren)
-            log.info("📦 Syncing products...");
-            SyncResult productResult = productSyncService.syncProducts();
-            log.info("Product sync result: {}", productResult);
-
-            // Then sync customers (orders depend on them)
-            log.info("📊 Syncing customers...");
-            SyncResult customerResult = customerSyncService.syncCustomers();
-            log.info("Customer sync result: {}", customerResult);
-
-            // Then sync orders
-            log.info("🛒 Syncing orders...");
-            SyncResult orderResult = orderSyncService.syncOrders();
-            log.info("Order sync result: {}", orderResult);
+            // Products and customers run in parallel, orders wait per page
+            // for the customers they reference
+            Map<SyncType, SyncResult> results = syncOrchestrator.runFullSync();
+            results.forEach((type, result) -> log.info("{} sync result: {}", type, result));
 
             log.info("=== WooCommerce synchronization completed ===");
 
@@ -53,4 +38,4 @@ public class WooCommerceSyncScheduler {
             log.error("Fatal error during WooCommerce sync", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package nl.embediq.woocommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.embediq.woocommerce.dto.WooPage;
+import nl.embediq.woocommerce.exception.WooCommerceApiException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Iterates the pages of a WooCommerce list endpoint in order while fetching
+ * the following pages in the background on virtual threads.
+ *
+ * <p>The first page is fetched on the calling thread to learn the total page
+ * count from X-WP-TotalPages. After that up to {@code prefetch} pages are kept
+ * in flight, so the next pages download while the caller persists the current
+ * one. Without the header it falls back to fetching one page at a time until
+ * a short or empty page is returned.</p>
+ */
+@Slf4j
+public class WooPagePrefetcher<T> implements Iterator<WooPage<T>>, AutoCloseable {
+
+    private final IntFunction<WooPage<T>> fetcher;
+    private final int pageSize;
+    private final int prefetch;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Deque<Future<WooPage<T>>> inFlight = new ArrayDeque<>();
+
+    private WooPage<T> nextPage;
+    private int nextPageNumber;
+    private int lastPageNumber = -1;
+    private boolean finished;
+
+    public WooPagePrefetcher(IntFunction<WooPage<T>> fetcher, int startPage, int pageSize, int prefetch) {
+        this.fetcher = fetcher;
+        this.nextPageNumber = startPage;
+        this.pageSize = pageSize;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextPage == null && !finished) {
+            nextPage = fetchNext();
+            if (nextPage == null) {
+                finished = true;
+            }
+        }
+        return nextPage != null;
+    }
+
+    @Override
+    public WooPage<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        WooPage<T> page = nextPage;
+        nextPage = null;
+        return page;
+    }
+
+    private WooPage<T> fetchNext() {
+        WooPage<T> page;
+        if (lastPageNumber < 0) {
+            // First page: learn the page range
+            page = fetcher.apply(nextPageNumber++);
+            if (page.totalPages() > 0) {
+                lastPageNumber = page.totalPages();
+                log.debug("Fetching pages {} to {}", page.page(), lastPageNumber);
+            } else {
+                lastPageNumber = Integer.MAX_VALUE;
+            }
+        } else if (!inFlight.isEmpty()) {
+            page = await(inFlight.poll());
+        } else if (nextPageNumber <= lastPageNumber) {
+            page = fetcher.apply(nextPageNumber++);
+        } else {
+            return null;
+        }
+
+        if (page.size() == 0) {
+            return null;
+        }
+
+        if (lastPageNumber == Integer.MAX_VALUE) {
+            // No page count known, stop after a short page
+            if (page.size() < pageSize) {
+                lastPageNumber = page.page();
+            }
+        } else {
+            fillPipeline();
+        }
+        return page;
+    }
+
+    private void fillPipeline() {
+        while (inFlight.size() < prefetch && nextPageNumber <= lastPageNumber) {
+            int pageNumber = nextPageNumber++;
+            inFlight.add(executor.submit(() -> fetcher.apply(pageNumber)));
+        }
+    }
+
+    private WooPage<T> await(Future<WooPage<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WooCommerceApiException("Interrupted while fetching page", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new WooCommerceApiException("Failed to fetch page", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        inFlight.forEach(future -> future.cancel(true));
+        inFlight.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,5 @@
+-- Catalog browsing filters on status and a price range, and sorts on created_at.
+-- The composite index also covers status-only lookups, so idx_status is dropped.
+CREATE INDEX idx_status_price ON products (status, price);
+CREATE INDEX idx_created_at ON products (created_at);
+DROP INDEX idx_status ON products;
@@ -0,0 +1,8 @@
+-- Full-text indexes backing product, customer and order search.
+-- InnoDB keeps these up to date on every insert/update, so sync and manual
+-- writes need no extra bookkeeping.
+ALTER TABLE products ADD FULLTEXT INDEX ft_products_search (name, sku, description);
+ALTER TABLE customers ADD FULLTEXT INDEX ft_customers_search (first_name, last_name, email, company_name);
+
+-- Order number lookups are prefix matches
+CREATE INDEX idx_order_number ON orders (order_number);
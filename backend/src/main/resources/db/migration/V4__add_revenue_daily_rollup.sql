@@ -0,0 +1,18 @@
+-- Revenue per day and order status, kept up to date on every order write.
+-- The dashboard reads these rows instead of scanning the orders table.
+CREATE TABLE revenue_daily_rollup
+(
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    rollup_date DATE           NOT NULL,
+    status      VARCHAR(50)    NOT NULL,
+    order_count INT            NOT NULL DEFAULT 0,
+    revenue     DECIMAL(14, 2) NOT NULL DEFAULT 0.00,
+    UNIQUE KEY uk_rollup_date_status (rollup_date, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Backfill from existing orders
+INSERT INTO revenue_daily_rollup (rollup_date, status, order_count, revenue)
+SELECT DATE(created_at), status, COUNT(*), COALESCE(SUM(total), 0)
+FROM orders
+WHERE created_at IS NOT NULL
+GROUP BY DATE(created_at), status;
@@ -0,0 +1,4 @@
+-- Covers the top-customers aggregate (filter on status, sum total per customer).
+-- It also serves the customer foreign key, so idx_customer is dropped.
+CREATE INDEX idx_customer_status_total ON orders (customer_id, status, total);
+DROP INDEX idx_customer ON orders;
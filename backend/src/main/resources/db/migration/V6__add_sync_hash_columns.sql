@@ -0,0 +1,10 @@
+-- Fingerprint of the WooCommerce fields each row was last synced from.
+-- Rows whose incoming fingerprint matches are skipped by the sync; NULL
+-- means unknown and forces the next sync to write the row.
+ALTER TABLE orders
+    ADD COLUMN sync_hash  BIGINT NULL,
+    ADD COLUMN items_hash BIGINT NULL;
+
+ALTER TABLE customers ADD COLUMN sync_hash BIGINT NULL;
+ALTER TABLE products ADD COLUMN sync_hash BIGINT NULL;
+ALTER TABLE product_variations ADD COLUMN sync_hash BIGINT NULL;
@@ -0,0 +1,21 @@
+-- Durable queue of single records to (re)apply: records that failed during
+-- a sync and webhook deliveries. Workers claim due rows with
+-- SELECT ... FOR UPDATE SKIP LOCKED; one row per record and action.
+CREATE TABLE sync_work_items
+(
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type     VARCHAR(20)   NOT NULL,
+    remote_id       BIGINT        NOT NULL,
+    action          VARCHAR(20)   NOT NULL,
+    payload         MEDIUMTEXT    NULL,
+    payload_hash    BIGINT        NULL,
+    state           VARCHAR(20)   NOT NULL,
+    attempts        INT           NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6)   NOT NULL,
+    claimed_at      DATETIME(6)   NULL,
+    last_error      VARCHAR(1000) NULL,
+    created_at      DATETIME(6)   NOT NULL,
+    updated_at      DATETIME(6)   NOT NULL,
+    UNIQUE KEY uk_work_item (entity_type, remote_id, action),
+    INDEX idx_work_item_due (state, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,6 @@
+-- WooCommerce date_modified of the version each row was last written from;
+-- a sync or webhook carrying an older version is skipped. The updated_at
+-- and modified_at columns are set on every local update, so they cannot
+-- serve. Orders keep this date in updated_at.
+ALTER TABLE customers ADD COLUMN woo_modified_at TIMESTAMP NULL;
+ALTER TABLE products ADD COLUMN woo_modified_at TIMESTAMP NULL;
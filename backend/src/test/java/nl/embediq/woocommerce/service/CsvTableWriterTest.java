@@ -0,0 +1,62 @@
+package nl.embediq.woocommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvTableWriterTest {
+
+    @Test
+    void startsWithByteOrderMark() throws Exception {
+        assertThat(write("a")).isEqualTo("\uFEFFa\r\n");
+    }
+
+    @Test
+    void separatesValues() throws Exception {
+        assertThat(write("a", "b")).isEqualTo("\uFEFFa,b\r\n");
+    }
+
+    @Test
+    void writesNullAsEmptyValue() throws Exception {
+        assertThat(write("a", null, "c")).isEqualTo("\uFEFFa,,c\r\n");
+    }
+
+    @Test
+    void quotesValuesWithSeparatorQuoteOrLineBreak() throws Exception {
+        assertThat(write("Jansen, Jan", "12\" plaat", "regel 1\nregel 2"))
+                .isEqualTo("\uFEFF\"Jansen, Jan\",\"12\"\" plaat\",\"regel 1\nregel 2\"\r\n");
+    }
+
+    @Test
+    void writesDecimalsWithoutExponent() throws Exception {
+        assertThat(write(new BigDecimal("1E+3"), new BigDecimal("12.50"))).isEqualTo("\uFEFF1000,12.50\r\n");
+    }
+
+    @Test
+    void quotesTextThatWouldBeReadAsFormula() throws Exception {
+        assertThat(write("=HYPERLINK(\"x\")", "+31", "-", "@SUM(A1)"))
+                .isEqualTo("\uFEFF\"'=HYPERLINK(\"\"x\"\")\",'+31,'-,'@SUM(A1)\r\n");
+    }
+
+    @Test
+    void leavesNegativeNumbersAlone() throws Exception {
+        assertThat(write(-5, new BigDecimal("-2.50"))).isEqualTo("\uFEFF-5,-2.50\r\n");
+    }
+
+    @Test
+    void leavesOtherTextAlone() throws Exception {
+        assertThat(write("Jan", "a=b", "")).isEqualTo("\uFEFFJan,a=b,\r\n");
+    }
+
+    private static String write(Object... values) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvTableWriter writer = new CsvTableWriter(out);
+        writer.row(values);
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package nl.embediq.woocommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchServiceTest {
+
+    @Test
+    void requiresEveryTermAsPrefix() {
+        assertThat(SearchService.toBooleanQuery("Jan Pla")).isEqualTo("+jan* +pla*");
+    }
+
+    @Test
+    void splitsOnPunctuation() {
+        assertThat(SearchService.toBooleanQuery("jan@example.com")).isEqualTo("+jan* +example* +com*");
+    }
+
+    @Test
+    void dropsOperatorCharacters() {
+        assertThat(SearchService.toBooleanQuery("+jansen -\"piet\" (klaas)~ <tafel>"))
+                .isEqualTo("+jansen* +piet* +klaas* +tafel*");
+    }
+
+    @Test
+    void dropsTermsTooShortForIndex() {
+        assertThat(SearchService.toBooleanQuery("de vries")).isEqualTo("+vries*");
+    }
+
+    @Test
+    void returnsNullWithoutIndexedTerm() {
+        assertThat(SearchService.toBooleanQuery("a 12 -")).isNull();
+    }
+
+    @Test
+    void keepsLettersWithAccents() {
+        assertThat(SearchService.toBooleanQuery("Éléonore Müller")).isEqualTo("+éléonore* +müller*");
+    }
+
+    @Test
+    void keepsDigits() {
+        assertThat(SearchService.toBooleanQuery("order 20261017")).isEqualTo("+order* +20261017*");
+    }
+}
@@ -0,0 +1,56 @@
+package nl.embediq.woocommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyncHashTest {
+
+    @Test
+    void sameValuesGiveSameHash() {
+        assertThat(hash("Jan", 42, new BigDecimal("10.00"))).isEqualTo(hash("Jan", 42, new BigDecimal("10.00")));
+    }
+
+    @Test
+    void changedValueGivesOtherHash() {
+        assertThat(hash("Jan", "Jansen")).isNotEqualTo(hash("Jan", "Janssen"));
+    }
+
+    @Test
+    void valueBoundariesCount() {
+        assertThat(hash("ab", "c")).isNotEqualTo(hash("a", "bc"));
+    }
+
+    @Test
+    void orderOfValuesCounts() {
+        assertThat(hash("a", "b")).isNotEqualTo(hash("b", "a"));
+    }
+
+    @Test
+    void equalAmountsWithOtherScaleGiveSameHash() {
+        assertThat(hash(new BigDecimal("5.2"))).isEqualTo(hash(new BigDecimal("5.20")));
+    }
+
+    @Test
+    void nullDiffersFromEmptyAndNullText() {
+        assertThat(hash((Object) null))
+                .isNotEqualTo(hash(""))
+                .isNotEqualTo(hash("null"));
+    }
+
+    @Test
+    void usesBothBytesOfCharacter() {
+        // U+0141 and U+0041 share their low byte
+        assertThat(hash("Łódź")).isNotEqualTo(hash("Aódź"));
+    }
+
+    private static long hash(Object... values) {
+        SyncHash hash = SyncHash.create();
+        for (Object value : values) {
+            hash.add(value);
+        }
+        return hash.value();
+    }
+}
@@ -0,0 +1,115 @@
+package nl.embediq.woocommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeBucketAggregatorTest {
+
+    private static final String[] MONTH_NAMES = {"Jan", "Feb", "Mrt", "Apr", "Mei", "Jun",
+            "Jul", "Aug", "Sep", "Okt", "Nov", "Dec"};
+
+    @Test
+    void sumsAmountsAndCountsPerMonth() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.monthsOfYear(2025, MONTH_NAMES);
+        buckets.add(LocalDate.of(2025, 1, 1), new BigDecimal("10.00"));
+        buckets.add(LocalDate.of(2025, 1, 31), new BigDecimal("2.50"));
+        buckets.add(LocalDate.of(2025, 12, 31), new BigDecimal("1.00"));
+
+        assertThat(buckets.getAmounts())
+                .hasSize(12)
+                .containsEntry("Jan", new BigDecimal("12.50"))
+                .containsEntry("Feb", new BigDecimal("0.00"))
+                .containsEntry("Dec", new BigDecimal("1.00"));
+        assertThat(buckets.getCounts()).containsEntry("Jan", 2L).containsEntry("Dec", 1L);
+        assertThat(buckets.getAmounts().keySet()).containsExactly(MONTH_NAMES);
+    }
+
+    @Test
+    void ignoresDatesOutsideBuckets() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.monthsOfYear(2025, MONTH_NAMES);
+        buckets.add(LocalDate.of(2024, 12, 31), new BigDecimal("5.00"));
+        buckets.add(LocalDate.of(2026, 1, 1), new BigDecimal("5.00"));
+        buckets.add(null, new BigDecimal("5.00"));
+
+        assertThat(buckets.getTotalAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(buckets.getTotalCount()).isZero();
+    }
+
+    @Test
+    void addsPreAggregatedValues() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.lastDays(LocalDate.of(2025, 3, 10), 7);
+        buckets.add(LocalDate.of(2025, 3, 4), 1_250, 3);
+        buckets.add(LocalDate.of(2025, 3, 3), 9_999, 9);
+
+        assertThat(buckets.getAmounts()).containsEntry("2025-03-04", new BigDecimal("12.50"));
+        assertThat(buckets.getCounts()).containsEntry("2025-03-04", 3L);
+        assertThat(buckets.getTotalCount()).isEqualTo(3);
+    }
+
+    @Test
+    void lastDaysEndWithToday() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.lastDays(LocalDate.of(2025, 3, 1), 3);
+
+        assertThat(buckets.getAmounts().keySet()).containsExactly("2025-02-27", "2025-02-28", "2025-03-01");
+        assertThat(buckets.getStartDate()).isEqualTo(LocalDate.of(2025, 2, 27));
+        assertThat(buckets.getEndDate()).isEqualTo(LocalDate.of(2025, 3, 1));
+    }
+
+    @Test
+    void lastMonthsCrossYearBoundary() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.lastMonths(LocalDate.of(2025, 2, 15), 3);
+        buckets.add(LocalDate.of(2024, 12, 1), new BigDecimal("1.00"));
+        buckets.add(LocalDate.of(2025, 2, 28), new BigDecimal("2.00"));
+
+        assertThat(buckets.getAmounts()).containsExactly(
+                Map.entry("2024-12", new BigDecimal("1.00")),
+                Map.entry("2025-01", new BigDecimal("0.00")),
+                Map.entry("2025-02", new BigDecimal("2.00")));
+        assertThat(buckets.getEndDate()).isEqualTo(LocalDate.of(2025, 2, 28));
+    }
+
+    @Test
+    void weeksAreBlocksOfSevenDaysFromJanuaryFirst() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.weeksOfYear(2025);
+        buckets.add(LocalDate.of(2025, 1, 7), BigDecimal.ONE);
+        buckets.add(LocalDate.of(2025, 1, 8), BigDecimal.ONE);
+        buckets.add(LocalDate.of(2025, 12, 31), BigDecimal.ONE);
+
+        assertThat(buckets.getCounts())
+                .hasSize(53)
+                .containsEntry("Week 1", 1L)
+                .containsEntry("Week 2", 1L)
+                .containsEntry("Week 53", 1L);
+    }
+
+    @Test
+    void weeksOfLeapYearKeepLastDays() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.weeksOfYear(2024);
+        buckets.add(LocalDate.of(2024, 12, 30), BigDecimal.ONE);
+        buckets.add(LocalDate.of(2024, 12, 31), BigDecimal.ONE);
+
+        assertThat(buckets.getCounts()).containsEntry("Week 53", 2L);
+    }
+
+    @Test
+    void yearsAreLabelledWithYear() {
+        TimeBucketAggregator buckets = TimeBucketAggregator.years(2023, 3);
+        buckets.add(LocalDate.of(2024, 6, 1), new BigDecimal("3.00"));
+
+        assertThat(buckets.getAmounts().keySet()).containsExactly("2023", "2024", "2025");
+        assertThat(buckets.getAmounts()).containsEntry("2024", new BigDecimal("3.00"));
+    }
+
+    @Test
+    void roundsToCentsHalfUp() {
+        assertThat(TimeBucketAggregator.toCents(new BigDecimal("1.005"))).isEqualTo(101);
+        assertThat(TimeBucketAggregator.toCents(new BigDecimal("-1.005"))).isEqualTo(-101);
+        assertThat(TimeBucketAggregator.toCents(new BigDecimal("7"))).isEqualTo(700);
+        assertThat(TimeBucketAggregator.toCents(null)).isZero();
+    }
+}
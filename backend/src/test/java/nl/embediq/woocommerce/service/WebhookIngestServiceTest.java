@@ -0,0 +1,200 @@
+package nl.embediq.woocommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.embediq.woocommerce.enums.SyncType;
+import nl.embediq.woocommerce.enums.SyncWorkAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookIngestServiceTest {
+
+    private static final String SECRET = "webhook-geheim";
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private SyncWorkQueue syncWorkQueue;
+
+    @InjectMocks
+    private WebhookIngestService webhookIngestService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(webhookIngestService, "secret", SECRET);
+    }
+
+    @Test
+    void acceptsSignatureOfBody() throws Exception {
+        byte[] body = bytes("{\"id\":1}");
+
+        assertThat(webhookIngestService.isSignatureValid(body, sign(body, SECRET))).isTrue();
+    }
+
+    @Test
+    void acceptsSignatureSurroundedByWhitespace() throws Exception {
+        byte[] body = bytes("{\"id\":1}");
+
+        assertThat(webhookIngestService.isSignatureValid(body, " " + sign(body, SECRET) + "\r\n")).isTrue();
+    }
+
+    @Test
+    void rejectsTamperedBody() throws Exception {
+        String signature = sign(bytes("{\"id\":1,\"total\":\"10.00\"}"), SECRET);
+
+        assertThat(webhookIngestService.isSignatureValid(bytes("{\"id\":1,\"total\":\"0.01\"}"), signature)).isFalse();
+    }
+
+    @Test
+    void rejectsSignatureWithOtherSecret() throws Exception {
+        byte[] body = bytes("{\"id\":1}");
+
+        assertThat(webhookIngestService.isSignatureValid(body, sign(body, "ander-geheim"))).isFalse();
+    }
+
+    @Test
+    void rejectsEverythingWithoutSecret() throws Exception {
+        ReflectionTestUtils.setField(webhookIngestService, "secret", "");
+        byte[] body = bytes("{\"id\":1}");
+
+        assertThat(webhookIngestService.isSignatureValid(body, sign(body, SECRET))).isFalse();
+    }
+
+    @Test
+    void rejectsMissingSignature() {
+        assertThat(webhookIngestService.isSignatureValid(bytes("{\"id\":1}"), null)).isFalse();
+    }
+
+    @Test
+    void queuesUpsertWithPayloadAndHash() throws Exception {
+        String json = "{\"id\":42,\"date_modified\":\"2026-10-01T10:00:00\"}";
+
+        assertThat(webhookIngestService.enqueue("order.updated", bytes(json)))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+        verify(syncWorkQueue).enqueue(SyncType.ORDER, 42L, SyncWorkAction.UPSERT, json,
+                SyncHash.create().add(json).value());
+    }
+
+    @Test
+    void skipsRedeliveryOfSameModification() throws Exception {
+        byte[] body = bytes("{\"id\":42,\"date_modified\":\"2026-10-01T10:00:00\"}");
+
+        webhookIngestService.enqueue("customer.updated", body);
+
+        assertThat(webhookIngestService.enqueue("customer.updated", body))
+                .isEqualTo(WebhookIngestService.Outcome.DUPLICATE);
+        verify(syncWorkQueue, times(1)).enqueue(eq(SyncType.CUSTOMER), eq(42L), any(), any(), any());
+    }
+
+    @Test
+    void queuesLaterModificationOfSameRecord() throws Exception {
+        webhookIngestService.enqueue("customer.updated", bytes("{\"id\":42,\"date_modified\":\"2026-10-01T10:00:00\"}"));
+
+        assertThat(webhookIngestService.enqueue("customer.updated",
+                bytes("{\"id\":42,\"date_modified\":\"2026-10-01T10:05:00\"}")))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+        verify(syncWorkQueue, times(2)).enqueue(eq(SyncType.CUSTOMER), eq(42L), any(), any(), any());
+    }
+
+    @Test
+    void sameIdOfOtherResourceIsNoDuplicate() throws Exception {
+        byte[] body = bytes("{\"id\":42,\"date_modified\":\"2026-10-01T10:00:00\"}");
+
+        webhookIngestService.enqueue("order.updated", body);
+
+        assertThat(webhookIngestService.enqueue("customer.updated", body))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+    }
+
+    @Test
+    void queuesVariationsOfParentForVariationDelivery() throws Exception {
+        assertThat(webhookIngestService.enqueue("product.updated",
+                bytes("{\"id\":501,\"parent_id\":500,\"date_modified\":\"2026-10-01T10:00:00\"}")))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+        verify(syncWorkQueue).enqueue(SyncType.PRODUCT, 500L, SyncWorkAction.VARIATIONS, null, null);
+    }
+
+    @Test
+    void queuesDeleteForDeletedTopic() throws Exception {
+        assertThat(webhookIngestService.enqueue("order.deleted", bytes("{\"id\":42}")))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+        verify(syncWorkQueue).enqueue(SyncType.ORDER, 42L, SyncWorkAction.DELETE, null, null);
+    }
+
+    @Test
+    void skipsRedeliveredDelete() throws Exception {
+        webhookIngestService.enqueue("product.deleted", bytes("{\"id\":7,\"date_modified\":\"2026-10-01T10:00:00\"}"));
+
+        assertThat(webhookIngestService.enqueue("product.deleted", bytes("{\"id\":7}")))
+                .isEqualTo(WebhookIngestService.Outcome.DUPLICATE);
+    }
+
+    @Test
+    void ignoresUnknownResource() throws Exception {
+        assertThat(webhookIngestService.enqueue("coupon.created", bytes("{\"id\":1}")))
+                .isEqualTo(WebhookIngestService.Outcome.IGNORED);
+        verifyNoInteractions(syncWorkQueue);
+    }
+
+    @Test
+    void ignoresTopicWithoutEvent() throws Exception {
+        assertThat(webhookIngestService.enqueue("order", bytes("{\"id\":1}")))
+                .isEqualTo(WebhookIngestService.Outcome.IGNORED);
+        verifyNoInteractions(syncWorkQueue);
+    }
+
+    @Test
+    void ignoresPayloadWithoutId() throws Exception {
+        // WooCommerce pings a new webhook with only a webhook_id
+        assertThat(webhookIngestService.enqueue("order.created", bytes("{\"webhook_id\":3}")))
+                .isEqualTo(WebhookIngestService.Outcome.IGNORED);
+        verifyNoInteractions(syncWorkQueue);
+    }
+
+    @Test
+    void acceptsRedeliveryAfterQueueFailure() throws Exception {
+        byte[] body = bytes("{\"id\":42,\"date_modified\":\"2026-10-01T10:00:00\"}");
+        doThrow(new IllegalStateException("database weg"))
+                .doNothing()
+                .when(syncWorkQueue).enqueue(any(), anyLong(), any(), any(), any());
+
+        assertThatThrownBy(() -> webhookIngestService.enqueue("order.updated", body))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(webhookIngestService.enqueue("order.updated", body))
+                .isEqualTo(WebhookIngestService.Outcome.QUEUED);
+        verify(syncWorkQueue, times(2)).enqueue(eq(SyncType.ORDER), eq(42L), eq(SyncWorkAction.UPSERT),
+                any(), any());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sign(byte[] body, String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(body));
+    }
+}